@@ -0,0 +1,97 @@
+package de.neuefische.todobackend.build;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Läuft beim Packen (mvn package, Phase prepare-package) über die statischen Dateien in target/classes/static
+ * und legt neben jede Datei eine .br und eine .gz Variante mit maximaler Kompression.
+ * Zur Laufzeit wählt der EncodedResourceResolver (StaticResourcesConfig) die passende Variante aus.
+ *
+ * Varianten, die nicht kleiner sind als das Original, werden weggelassen.
+ * Gibt es Brotli für die Plattform nicht, wird nur gzip erzeugt.
+ *
+ * Aufruf: java -cp <brotli4j> PrecompressStaticResources.java <Verzeichnis> [Mindestgröße in Bytes]
+ */
+public class PrecompressStaticResources {
+
+    private static final Set<String> COMPRESSIBLE = Set.of(".html", ".js", ".css", ".json", ".map", ".txt", ".svg", ".ico");
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args[0]);
+        int minSize = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        if (!Files.isDirectory(directory)) {
+            System.out.println("No static resources in " + directory);
+            return;
+        }
+        boolean brotli = brotliAvailable();
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(PrecompressStaticResources::isCompressible)
+                    .toList();
+        }
+        long original = 0;
+        long compressed = 0;
+        for (Path file : files) {
+            byte[] content = Files.readAllBytes(file);
+            if (content.length < minSize) {
+                continue;
+            }
+            original += content.length;
+            compressed += write(file, ".gz", gzip(content), content.length);
+            if (brotli) {
+                write(file, ".br", Encoder.compress(content, new Encoder.Parameters().setQuality(11)), content.length);
+            }
+        }
+        System.out.printf("Precompressed %d bytes of static resources to %d bytes gzip%s%n",
+                original, compressed, brotli ? " (plus brotli)" : "");
+    }
+
+    private static boolean isCompressible(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSIBLE.contains(name.substring(dot));
+    }
+
+    private static boolean brotliAvailable() {
+        try {
+            Brotli4jLoader.ensureAvailability();
+            return true;
+        } catch (Throwable e) {
+            System.out.println("Brotli not available on this platform, writing gzip only: " + e);
+            return false;
+        }
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static long write(Path file, String suffix, byte[] compressed, int originalSize) throws IOException {
+        if (compressed.length >= originalSize) {
+            return originalSize;
+        }
+        Files.write(file.resolveSibling(file.getFileName() + suffix), compressed);
+        return compressed.length;
+    }
+}
@@ -0,0 +1,141 @@
+package de.neuefische.todobackend.build;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Läuft im Profil fast-startup nach dem Packen (mvn package -Pfast-startup):
+ * 1. packt das Spring-Boot-Jar nach target/fast-startup um (gleiches Layout wie java -Djarmode=tools extract ab Boot 3.3):
+ *    application.jar mit BOOT-INF/classes und dem Class-Path im Manifest, daneben lib/ mit den Abhängigkeiten.
+ *    CDS archiviert keine Klassen aus verschachtelten Jars und keine aus Verzeichnissen.
+ * 2. Trainingslauf bis zum Ende von refresh() (-Dspring.context.exit=onRefresh), dabei schreibt die JVM application.jsa
+ * 3. legt run.sh an, das die Anwendung mit AOT und dem CDS-Archiv startet
+ *
+ * Der Trainingslauf braucht weder Mongo noch OpenAI: beim refresh() wird nichts abgefragt,
+ * solange auto-index-creation und der OpenAI-Cache aus sind.
+ *
+ * Aufruf: java PrepareFastStartup.java <jar> <Zielverzeichnis> <Main-Klasse>
+ */
+public class PrepareFastStartup {
+
+    private static final String CLASSES = "BOOT-INF/classes/";
+    private static final String LIB = "BOOT-INF/lib/";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path jar = Path.of(args[0]);
+        Path target = Path.of(args[1]);
+        String mainClass = args[2];
+
+        deleteRecursively(target);
+        Files.createDirectories(target.resolve("lib"));
+        repackage(jar, target, mainClass);
+
+        List<String> jvmOptions = List.of("-Dspring.aot.enabled=true");
+        List<String> training = new ArrayList<>(List.of(javaExecutable(), "-XX:ArchiveClassesAtExit=application.jsa",
+                "-Dspring.context.exit=onRefresh"));
+        training.addAll(jvmOptions);
+        training.addAll(List.of("-jar", "application.jar",
+                "--BASE_URL=http://localhost:1",
+                "--API_KEY=training",
+                "--MONGO_DB_URI=mongodb://localhost:1/training",
+                "--spring.data.mongodb.auto-index-creation=false",
+                "--openai.cache.enabled=false",
+                "--todo.spell-check.enabled=false",
+                "--logging.level.root=WARN"));
+        Process process = new ProcessBuilder(training)
+                .directory(target.toFile())
+                .inheritIO()
+                .start();
+        process.getOutputStream().close();
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || !Files.exists(target.resolve("application.jsa"))) {
+            throw new IllegalStateException("Training run for the CDS archive failed with exit code " + exitCode);
+        }
+
+        Path runScript = target.resolve("run.sh");
+        Files.writeString(runScript, """
+                #!/bin/sh
+                #Startet die Anwendung mit Spring AOT und dem CDS-Archiv, Parameter werden an Spring Boot durchgereicht
+                cd "$(dirname "$0")"
+                exec java -XX:SharedArchiveFile=application.jsa %s -jar application.jar "$@"
+                """.formatted(String.join(" ", jvmOptions)));
+        try {
+            Files.setPosixFilePermissions(runScript, PosixFilePermissions.fromString("rwxr-xr-x"));
+        } catch (UnsupportedOperationException e) {
+            //Windows, dort gibt es kein Ausführungs-Bit
+        }
+        System.out.printf("CDS archive %s (%d KB)%n", target.resolve("application.jsa"),
+                Files.size(target.resolve("application.jsa")) / 1024);
+    }
+
+    private static void repackage(Path jar, Path target, String mainClass) throws IOException {
+        try (ZipFile bootJar = new ZipFile(jar.toFile())) {
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass);
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, String.join(" ", classpath(bootJar)));
+
+            try (JarOutputStream application = new JarOutputStream(
+                    Files.newOutputStream(target.resolve("application.jar")), manifest)) {
+                for (ZipEntry entry : Collections.list(bootJar.entries())) {
+                    String name = entry.getName();
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    try (InputStream content = bootJar.getInputStream(entry)) {
+                        if (name.startsWith(CLASSES)) {
+                            application.putNextEntry(new JarEntry(name.substring(CLASSES.length())));
+                            content.transferTo(application);
+                            application.closeEntry();
+                        } else if (name.startsWith(LIB)) {
+                            Files.copy(content, target.resolve("lib").resolve(name.substring(LIB.length())));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    //Reihenfolge aus BOOT-INF/classpath.idx, eine Zeile pro Jar, z. B. - "BOOT-INF/lib/spring-core-6.1.5.jar"
+    private static List<String> classpath(ZipFile bootJar) throws IOException {
+        List<String> entries = new ArrayList<>();
+        try (InputStream index = bootJar.getInputStream(bootJar.getEntry("BOOT-INF/classpath.idx"))) {
+            for (String line : new String(index.readAllBytes()).split("\n")) {
+                String entry = line.strip();
+                if (entry.startsWith("- \"" + LIB)) {
+                    entries.add("lib/" + entry.substring(3 + LIB.length(), entry.length() - 1));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static String javaExecutable() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package de.neuefische.todobackend.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import de.neuefische.todobackend.dto.TodoWOId;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Json gegen CBOR und Smile für die Antworten von GET /api/todo und den Body von POST/PUT.
+ * Die Größe der Payloads steht als Zusatzwert "bytes" bei den serialize-Benchmarks im Ergebnis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryFormatsBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"1000"})
+    private int todoCount;
+
+    private ObjectWriter todoListWriter;
+    private ObjectReader todoListReader;
+    private ObjectWriter todoWOIdWriter;
+    private ObjectReader todoWOIdReader;
+
+    private List<Todo> todos;
+    private TodoWOId todoWOId;
+    private byte[] todoListBytes;
+    private byte[] todoWOIdBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        //Gleiche Einstellungen wie die Converter in BinaryFormatsConfig
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory(format)).build();
+        todoListWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Todo.class));
+        todoListReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Todo.class));
+        todoWOIdWriter = objectMapper.writerFor(TodoWOId.class);
+        todoWOIdReader = objectMapper.readerFor(TodoWOId.class);
+
+        TodoStatus[] statuses = TodoStatus.values();
+        todos = new ArrayList<>(todoCount);
+        for (int i = 0; i < todoCount; i++) {
+            todos.add(new Todo(UUID.randomUUID().toString(), "Todo Nummer " + i + ": Fenster putzen",
+                    statuses[i % statuses.length], (long) i % 5));
+        }
+        todoWOId = new TodoWOId("Fenster putzen", TodoStatus.OPEN);
+
+        todoListBytes = todoListWriter.writeValueAsBytes(todos);
+        todoWOIdBytes = todoWOIdWriter.writeValueAsBytes(todoWOId);
+    }
+
+    private static JsonFactory factory(String format) {
+        return switch (format) {
+            case "json" -> new JsonFactory();
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+    }
+
+    /**
+     * Größe der serialisierten Payload in Bytes, landet in jmh-result.json unter secondaryMetrics.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        public double bytes;
+        private double share;
+
+        //EVENTS summiert JMH über Messiterationen, Threads und Forks, die Größe soll am Ende aber genau einmal dastehen
+        @Setup(Level.Trial)
+        public void setup(BenchmarkParams params) {
+            share = 1.0 / (params.getMeasurement().getCount() * params.getThreads() * Math.max(1, params.getForks()));
+        }
+
+        void record(byte[] payload) {
+            bytes = payload.length * share;
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeTodoList(PayloadSize size) throws IOException {
+        byte[] bytes = todoListWriter.writeValueAsBytes(todos);
+        size.record(bytes);
+        return bytes;
+    }
+
+    @Benchmark
+    public List<Todo> deserializeTodoList() throws IOException {
+        return todoListReader.readValue(todoListBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeTodoWOId(PayloadSize size) throws IOException {
+        byte[] bytes = todoWOIdWriter.writeValueAsBytes(todoWOId);
+        size.record(bytes);
+        return bytes;
+    }
+
+    @Benchmark
+    public TodoWOId deserializeTodoWOId() throws IOException {
+        return todoWOIdReader.readValue(todoWOIdBytes);
+    }
+}
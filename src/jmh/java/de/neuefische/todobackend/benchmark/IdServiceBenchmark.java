@@ -0,0 +1,40 @@
+package de.neuefische.todobackend.benchmark;
+
+import de.neuefische.todobackend.service.IdService;
+import de.neuefische.todobackend.service.IdStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die id-Strategien, einmal mit einem Thread und einmal mit 8 Threads gleichzeitig (Contention).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdServiceBenchmark {
+
+    @Param({"RANDOM_UUID", "UUID_V7"})
+    private IdStrategy strategy;
+
+    private IdService idService;
+
+    @Setup
+    public void setup() {
+        idService = new IdService(strategy);
+    }
+
+    @Benchmark
+    public String randomId() {
+        return idService.randomId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String randomIdContended() {
+        return idService.randomId();
+    }
+}
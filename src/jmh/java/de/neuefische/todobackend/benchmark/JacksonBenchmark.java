@@ -0,0 +1,99 @@
+package de.neuefische.todobackend.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import de.neuefische.todobackend.dto.TodoWOId;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import de.neuefische.todobackend.model.openAi.OpenAiChoice;
+import de.neuefische.todobackend.model.openAi.OpenAiMessage;
+import de.neuefische.todobackend.model.openAi.OpenAiResponse;
+import de.neuefische.todobackend.model.openAi.OpenAiUsage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * (De)Serialisierung der Objekte, die bei jedem Request durch Jackson laufen.
+ * Reader und Writer werden wie in Spring einmal erzeugt und wiederverwendet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonBenchmark {
+
+    private ObjectWriter todoWriter;
+    private ObjectReader todoReader;
+    private ObjectWriter todoWOIdWriter;
+    private ObjectReader todoWOIdReader;
+    private ObjectWriter openAiResponseWriter;
+    private ObjectReader openAiResponseReader;
+
+    private Todo todo;
+    private TodoWOId todoWOId;
+    private OpenAiResponse openAiResponse;
+
+    private String todoJson;
+    private String todoWOIdJson;
+    private String openAiResponseJson;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        //Gleiche Defaults wie der ObjectMapper in Spring (u. a. unbekannte Felder ignorieren)
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        todoWriter = objectMapper.writerFor(Todo.class);
+        todoReader = objectMapper.readerFor(Todo.class);
+        todoWOIdWriter = objectMapper.writerFor(TodoWOId.class);
+        todoWOIdReader = objectMapper.readerFor(TodoWOId.class);
+        openAiResponseWriter = objectMapper.writerFor(OpenAiResponse.class);
+        openAiResponseReader = objectMapper.readerFor(OpenAiResponse.class);
+
+        todo = new Todo("018f3a4e-7c2b-7d4e-9a1b-3c5d7e9f1a2b", "Fenster putzen", TodoStatus.IN_PROGRESS, 3L);
+        todoWOId = new TodoWOId("Fenster putzen", TodoStatus.OPEN);
+        openAiResponse = new OpenAiResponse("chatcmpl-benchmark", List.of(new OpenAiChoice(
+                new OpenAiMessage("assistant", "1. Staubsaugen\n2. Fenster putzen\n3. Wäsche waschen\n4. Bad putzen\n"
+                        + "5. Müll rausbringen\n6. Einkaufen\n7. Staub wischen\n8. Boden wischen\n9. Bett beziehen\n10. Abwaschen"))),
+                new OpenAiUsage(25, 60, 85));
+
+        todoJson = todoWriter.writeValueAsString(todo);
+        todoWOIdJson = todoWOIdWriter.writeValueAsString(todoWOId);
+        openAiResponseJson = openAiResponseWriter.writeValueAsString(openAiResponse);
+    }
+
+    @Benchmark
+    public String serializeTodo() throws JsonProcessingException {
+        return todoWriter.writeValueAsString(todo);
+    }
+
+    @Benchmark
+    public Todo deserializeTodo() throws JsonProcessingException {
+        return todoReader.readValue(todoJson);
+    }
+
+    @Benchmark
+    public String serializeTodoWOId() throws JsonProcessingException {
+        return todoWOIdWriter.writeValueAsString(todoWOId);
+    }
+
+    @Benchmark
+    public TodoWOId deserializeTodoWOId() throws JsonProcessingException {
+        return todoWOIdReader.readValue(todoWOIdJson);
+    }
+
+    @Benchmark
+    public String serializeOpenAiResponse() throws JsonProcessingException {
+        return openAiResponseWriter.writeValueAsString(openAiResponse);
+    }
+
+    @Benchmark
+    public OpenAiResponse deserializeOpenAiResponse() throws JsonProcessingException {
+        return openAiResponseReader.readValue(openAiResponseJson);
+    }
+}
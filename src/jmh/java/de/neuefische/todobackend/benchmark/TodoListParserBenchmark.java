@@ -0,0 +1,42 @@
+package de.neuefische.todobackend.benchmark;
+
+import de.neuefische.todobackend.service.TodoListParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Das Zerlegen der ChatGPT-Antwort in generateStackOfTodos, für eine kurze und eine lange Liste.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TodoListParserBenchmark {
+
+    @Param({"10", "50"})
+    private int count;
+
+    private String answer;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            builder.append(i).append(". Todo Nummer ").append(i).append(" im Haushalt erledigen\n");
+            //ChatGPT schickt gerne Leerzeilen zwischen den Einträgen
+            if (i % 5 == 0) {
+                builder.append('\n');
+            }
+        }
+        answer = builder.toString();
+    }
+
+    @Benchmark
+    public List<String> parse() {
+        return TodoListParser.parse(answer, count);
+    }
+}
@@ -0,0 +1,109 @@
+package de.neuefische.todobackend.benchmark;
+
+import de.neuefische.todobackend.TodoBackendApplication;
+import de.neuefische.todobackend.dto.TodoWOId;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import de.neuefische.todobackend.service.TdService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CRUD über den TodoService gegen die embedded Mongo aus den Tests (flapdoodle), also inklusive Mongo-Roundtrip.
+ * cacheType=none misst findTodoById ohne den Caffeine-Cache, metrics=false zeigt den Overhead der
+ * Repository- und Mongo-Metriken (management.metrics.enable.all=false).
+ * storage=memory misst stattdessen den InMemoryTodoService (todo.service=memory, Journal im temp-Verzeichnis).
+ *
+ * Gegen eine laufende Mongo statt der embedded:
+ * mvn verify -Pjmh -Djmh.include=TodoServiceBenchmark -Djmh.args="-jvmArgsAppend -Dbenchmark.mongoUri=mongodb://localhost:27017/jmh"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoServiceBenchmark {
+
+    private static final int SEEDED_TODOS = 1_000;
+
+    @Param({"caffeine", "none"})
+    private String cacheType;
+
+    @Param({"true", "false"})
+    private boolean metrics;
+
+    @Param({"mongo", "memory"})
+    private String storage;
+
+    private ConfigurableApplicationContext context;
+    private TdService todoService;
+    private List<String> ids;
+
+    private final TodoWOId newTodo = new TodoWOId("Fenster putzen", TodoStatus.OPEN);
+    private final TodoWOId changedTodo = new TodoWOId("Fenster putzen", TodoStatus.DONE);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        List<String> properties = new ArrayList<>(List.of(
+                "todo.service=" + storage,
+                "todo.journal.directory=" + Files.createTempDirectory("todo-journal"),
+                "spring.cache.type=" + cacheType,
+                "management.metrics.enable.all=" + metrics,
+                "BASE_URL=http://localhost:1",
+                "API_KEY=benchmark",
+                "logging.level.root=WARN"));
+        String mongoUri = System.getProperty("benchmark.mongoUri");
+        if (mongoUri != null) {
+            properties.add("spring.data.mongodb.uri=" + mongoUri);
+            properties.add("spring.autoconfigure.exclude=de.flapdoodle.embed.mongo.spring.autoconfigure.EmbeddedMongoAutoConfiguration");
+        }
+        context = new SpringApplicationBuilder(TodoBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties.toArray(String[]::new))
+                .run();
+        todoService = context.getBean(TdService.class);
+
+        ids = new ArrayList<>();
+        for (int i = 0; i < SEEDED_TODOS; i++) {
+            ids.add(todoService.addTodo(new TodoWOId("Todo " + i, TodoStatus.OPEN)).id());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ids.forEach(todoService::deleteTodo);
+        context.close();
+    }
+
+    @Benchmark
+    public Todo findTodoById() {
+        return todoService.findTodoById(randomId());
+    }
+
+    @Benchmark
+    public Todo updateTodo() {
+        return todoService.updateTodo(changedTodo, randomId(), null);
+    }
+
+    //Anlegen und wieder Löschen zusammen, damit die Collection während der Messung nicht wächst
+    @Benchmark
+    public Todo addAndDeleteTodo() {
+        Todo todo = todoService.addTodo(newTodo);
+        todoService.deleteTodo(todo.id());
+        return todo;
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
@@ -2,8 +2,10 @@ package de.neuefische.todobackend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(TodoRuntimeHints.class)
 public class TodoBackendApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,46 @@
+package de.neuefische.todobackend;
+
+import de.neuefische.todobackend.dto.BulkItemResult;
+import de.neuefische.todobackend.dto.BulkOperation;
+import de.neuefische.todobackend.dto.TodoEvent;
+import de.neuefische.todobackend.dto.TodoWOId;
+import de.neuefische.todobackend.exception.ErrorMessage;
+import de.neuefische.todobackend.model.ArchivedTodo;
+import de.neuefische.todobackend.model.GenerationJob;
+import de.neuefische.todobackend.model.IdempotencyRecord;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.openAi.CachedOpenAiResponse;
+import de.neuefische.todobackend.model.openAi.OpenAiRequest;
+import de.neuefische.todobackend.model.openAi.OpenAiResponse;
+import de.neuefische.todobackend.model.openAi.OpenAiStreamChunk;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection-Hints für Spring AOT und das Native Image (Profile fast-startup und native).
+ *
+ * Was Controller direkt annehmen oder zurückgeben, findet Spring selbst. Die OpenAI-Modelle laufen aber nur
+ * durch RestClient und ObjectMapper, die Records landen auch in Mongo, in SSE-Events und in Fehlerantworten.
+ * BindingReflectionHintsRegistrar geht dabei auch durch die Felder (OpenAiChoice, OpenAiMessage, OpenAiUsage, ...).
+ */
+class TodoRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                Todo.class,
+                ArchivedTodo.class,
+                IdempotencyRecord.class,
+                TodoWOId.class,
+                ErrorMessage.class,
+                TodoEvent.class,
+                BulkOperation.class,
+                BulkItemResult.class,
+                GenerationJob.class,
+                OpenAiRequest.class,
+                OpenAiResponse.class,
+                OpenAiStreamChunk.class,
+                CachedOpenAiResponse.class);
+    }
+}
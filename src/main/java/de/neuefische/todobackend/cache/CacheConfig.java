@@ -0,0 +1,15 @@
+package de.neuefische.todobackend.cache;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Größe und TTL der Caches werden über spring.cache.caffeine.spec in den application.properties eingestellt.
+ * Hit/Miss/Eviction-Statistiken gibt es über /actuator/metrics/cache.gets bzw. cache.evictions.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String TODOS = "todos";
+}
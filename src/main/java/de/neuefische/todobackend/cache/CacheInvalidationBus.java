@@ -0,0 +1,97 @@
+package de.neuefische.todobackend.cache;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.TailableCursorRequest;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Verteilt Cache-Invalidierungen zwischen mehreren Instanzen über eine capped Collection in Mongo.
+ * Jede Instanz schreibt ihre Invalidierungen dort hinein und liest die der anderen über einen tailable Cursor mit.
+ * Funktioniert auch mit einem einzelnen mongod, ein Replica Set (für Change Streams) ist nicht nötig.
+ */
+public class CacheInvalidationBus implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final MongoTemplate mongoTemplate;
+    private final String collection;
+    private final MessageListenerContainer container;
+
+    private volatile BiConsumer<String, Object> remoteInvalidationHandler = (cacheName, key) -> {
+    };
+
+    public CacheInvalidationBus(MongoTemplate mongoTemplate, String collection, long cappedSizeBytes) {
+        this.mongoTemplate = mongoTemplate;
+        this.collection = collection;
+        this.container = new DefaultMessageListenerContainer(mongoTemplate);
+        createCappedCollection(cappedSizeBytes);
+    }
+
+    public void onRemoteInvalidation(BiConsumer<String, Object> handler) {
+        this.remoteInvalidationHandler = handler;
+    }
+
+    /**
+     * key == null bedeutet: den ganzen Cache leeren.
+     */
+    public void publish(String cacheName, Object key) {
+        Document message = new Document("origin", nodeId)
+                .append("cache", cacheName)
+                .append("key", key)
+                .append("createdAt", new Date());
+        mongoTemplate.insert(message, collection);
+    }
+
+    @Override
+    public void start() {
+        MessageListener<Document, Document> listener = message -> {
+            Document body = message.getBody();
+            if (body != null) {
+                remoteInvalidationHandler.accept(body.getString("cache"), body.get("key"));
+            }
+        };
+        TailableCursorRequest<Document> request = TailableCursorRequest.builder(listener)
+                .collection(collection)
+                .filter(Query.query(Criteria.where("origin").ne(nodeId).and("createdAt").gte(new Date())))
+                .build();
+        container.start();
+        container.register(request, Document.class);
+    }
+
+    @Override
+    public void stop() {
+        container.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return container.isRunning();
+    }
+
+    private void createCappedCollection(long cappedSizeBytes) {
+        if (mongoTemplate.collectionExists(collection)) {
+            return;
+        }
+        try {
+            mongoTemplate.createCollection(collection, CollectionOptions.empty().capped().size(cappedSizeBytes));
+        } catch (DataAccessException e) {
+            //Eine andere Instanz war schneller, das ist ok
+            log.debug("Collection {} was created concurrently", collection, e);
+        }
+    }
+}
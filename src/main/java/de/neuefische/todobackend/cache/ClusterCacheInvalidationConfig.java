@@ -0,0 +1,54 @@
+package de.neuefische.todobackend.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.CaffeineCacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Nur für Deployments mit mehreren Instanzen: todo.cache.cluster-invalidation.enabled=true
+ * Ersetzt den CacheManager von Spring Boot durch einen, der Änderungen an die anderen Instanzen verteilt.
+ */
+@Configuration
+@ConditionalOnProperty(name = "todo.cache.cluster-invalidation.enabled", havingValue = "true")
+@EnableConfigurationProperties(CacheProperties.class)
+public class ClusterCacheInvalidationConfig {
+
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus(MongoTemplate mongoTemplate,
+                                                     @Value("${todo.cache.cluster-invalidation.collection:todo_cache_invalidations}") String collection,
+                                                     @Value("${todo.cache.cluster-invalidation.capped-size-bytes:1048576}") long cappedSizeBytes) {
+        return new CacheInvalidationBus(mongoTemplate, collection, cappedSizeBytes);
+    }
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties, CacheInvalidationBus bus) {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager();
+        String spec = cacheProperties.getCaffeine().getSpec();
+        if (StringUtils.hasText(spec)) {
+            caffeineCacheManager.setCacheSpecification(spec);
+        }
+        if (!cacheProperties.getCacheNames().isEmpty()) {
+            caffeineCacheManager.setCacheNames(cacheProperties.getCacheNames());
+        }
+        return new ClusterInvalidatingCacheManager(caffeineCacheManager, bus);
+    }
+
+    //Damit die Cache-Metriken auch für die gewrappten Caffeine-Caches erfasst werden
+    @Bean
+    public CacheMeterBinderProvider<ClusterInvalidatingCache> clusterInvalidatingCacheMeterBinderProvider() {
+        CaffeineCacheMeterBinderProvider caffeineProvider = new CaffeineCacheMeterBinderProvider();
+        return (cache, tags) -> cache.getDelegate() instanceof CaffeineCache caffeineCache
+                ? caffeineProvider.getMeterBinder(caffeineCache, tags)
+                : null;
+    }
+}
@@ -0,0 +1,68 @@
+package de.neuefische.todobackend.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Reicht alles an den lokalen Cache weiter und meldet Änderungen (put/evict/clear) an die anderen Instanzen.
+ * Das Befüllen beim Lesen (get mit valueLoader, also @Cacheable(sync = true)) wird nicht gemeldet,
+ * sonst würde jeder Cache-Miss die Einträge auf allen anderen Instanzen löschen.
+ */
+public class ClusterInvalidatingCache implements Cache {
+
+    private final Cache delegate;
+    private final CacheInvalidationBus bus;
+
+    public ClusterInvalidatingCache(Cache delegate, CacheInvalidationBus bus) {
+        this.delegate = delegate;
+        this.bus = bus;
+    }
+
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return delegate.get(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+        bus.publish(getName(), key);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        bus.publish(getName(), key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        bus.publish(getName(), null);
+    }
+}
@@ -0,0 +1,48 @@
+package de.neuefische.todobackend.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ClusterInvalidatingCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final CacheInvalidationBus bus;
+    private final Map<String, ClusterInvalidatingCache> caches = new ConcurrentHashMap<>();
+
+    public ClusterInvalidatingCacheManager(CacheManager delegate, CacheInvalidationBus bus) {
+        this.delegate = delegate;
+        this.bus = bus;
+        bus.onRemoteInvalidation(this::evictLocally);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = delegate.getCache(name);
+        if (cache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, cacheName -> new ClusterInvalidatingCache(cache, bus));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    //Invalidierung von einer anderen Instanz: nur lokal löschen, nicht wieder weiterverteilen
+    private void evictLocally(String cacheName, Object key) {
+        Cache cache = cacheName == null ? null : delegate.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        if (key == null) {
+            cache.clear();
+        } else {
+            cache.evict(key);
+        }
+    }
+}
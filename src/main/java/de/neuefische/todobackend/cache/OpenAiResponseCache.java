@@ -0,0 +1,139 @@
+package de.neuefische.todobackend.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.neuefische.todobackend.model.openAi.CachedOpenAiResponse;
+import de.neuefische.todobackend.model.openAi.OpenAiRequest;
+import de.neuefische.todobackend.model.openAi.OpenAiResponse;
+import de.neuefische.todobackend.repository.MongoTtlIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Cache für OpenAI-Antworten in zwei Stufen:
+ * 1. LRU im Speicher (maximale Größe + TTL)
+ * 2. Mongo-Collection mit TTL-Index, damit auch nach einem Neustart oder auf anderen Instanzen nichts doppelt angefragt wird
+ *
+ * Gecached werden nur Requests mit temperature = 0, nur da ist die Antwort (weitgehend) deterministisch.
+ * Ohne Mongo gibt es nur die erste Stufe (siehe MongoTtlIndex).
+ */
+@Component
+public class OpenAiResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiResponseCache.class);
+
+    private final ObjectMapper objectMapper;
+    //null ohne Mongo
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Cache<String, OpenAiResponse> memory;
+
+    public OpenAiResponseCache(ObjectMapper objectMapper,
+                               ObjectProvider<MongoTemplate> mongoTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${openai.cache.enabled:true}") boolean enabled,
+                               @Value("${openai.cache.ttl:24h}") Duration ttl,
+                               @Value("${openai.cache.max-size:1000}") long maxSize) {
+        this.objectMapper = objectMapper;
+        this.mongoTemplate = mongoTemplate.getIfAvailable();
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "openai-responses");
+        if (enabled) {
+            MongoTtlIndex.ensure(this.mongoTemplate, CachedOpenAiResponse.class, "createdAt", ttl);
+        }
+    }
+
+    public boolean isCacheable(OpenAiRequest request) {
+        return enabled && request.getTemperature() == 0;
+    }
+
+    public OpenAiResponse get(OpenAiRequest request, Supplier<OpenAiResponse> loader) {
+        String key = keyOf(request);
+
+        OpenAiResponse cached = memory.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        cached = findInMongo(key);
+        if (cached != null) {
+            memory.put(key, cached);
+            return cached;
+        }
+
+        return load(key, loader);
+    }
+
+    /**
+     * Liest nicht aus dem Cache, sondern fragt immer neu an und überschreibt den Eintrag.
+     */
+    public OpenAiResponse refresh(OpenAiRequest request, Supplier<OpenAiResponse> loader) {
+        return load(keyOf(request), loader);
+    }
+
+    private OpenAiResponse load(String key, Supplier<OpenAiResponse> loader) {
+        OpenAiResponse response = loader.get();
+        memory.put(key, response);
+        saveInMongo(key, response);
+        return response;
+    }
+
+    private OpenAiResponse findInMongo(String key) {
+        if (mongoTemplate == null) {
+            return null;
+        }
+        try {
+            CachedOpenAiResponse cached = mongoTemplate.findById(key, CachedOpenAiResponse.class);
+            //Der TTL-Monitor von Mongo läuft nur ca. jede Minute, abgelaufene Einträge können also noch da sein
+            if (cached == null || cached.createdAt().plus(ttl).isBefore(Instant.now())) {
+                return null;
+            }
+            return cached.response();
+        } catch (DataAccessException e) {
+            log.warn("Could not read OpenAI response cache from Mongo", e);
+            return null;
+        }
+    }
+
+    private void saveInMongo(String key, OpenAiResponse response) {
+        if (mongoTemplate == null) {
+            return;
+        }
+        try {
+            mongoTemplate.save(new CachedOpenAiResponse(key, response, Instant.now()));
+        } catch (DataAccessException e) {
+            log.warn("Could not write OpenAI response cache to Mongo", e);
+        }
+    }
+
+    private String keyOf(OpenAiRequest request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not build cache key for OpenAI request", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package de.neuefische.todobackend.controller;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * CBOR und Smile zusätzlich zu Json, für Requests (Content-Type) und Responses (Accept).
+ * Json bleibt der Standard: Spring Boot setzt diese Converter an die Stelle der eigenen CBOR/Smile-Converter
+ * und damit hinter den Json-Converter, ohne passenden Accept-Header wird also weiter Json geschickt.
+ *
+ * Die ObjectMapper kommen aus dem Builder von Spring Boot, damit alle Formate die gleichen Einstellungen
+ * (spring.jackson.*, Module) haben wie Json. Größe und Geschwindigkeit: siehe BinaryFormatsBenchmark.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
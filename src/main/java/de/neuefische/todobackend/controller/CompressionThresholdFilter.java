@@ -0,0 +1,102 @@
+package de.neuefische.todobackend.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Damit server.compression.min-response-size für die Json-Antworten von /api/todo greift.
+ *
+ * Tomcat kennt die Größe einer Antwort nur, wenn sie beim Abschluss noch komplett in seinem Puffer liegt.
+ * Jackson ruft am Ende aber flush() auf, die Antwort geht dann ohne Content-Length raus und wird immer komprimiert,
+ * auch wenn sie nur ein paar Bytes groß ist. Hier werden diese flush()-Aufrufe ignoriert: Kleine Antworten bekommen
+ * eine Content-Length und bleiben unkomprimiert, große füllen den Puffer und werden wie bisher gestreamt (mit gzip).
+ *
+ * Nicht für /events und /export, dort muss jeder flush() sofort beim Client ankommen.
+ */
+@Component
+@ConditionalOnProperty(name = "server.compression.enabled", havingValue = "true")
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/api/todo") || path.endsWith("/events") || path.endsWith("/export");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        filterChain.doFilter(request, new IgnoreFlushResponse(response));
+    }
+
+    private static final class IgnoreFlushResponse extends HttpServletResponseWrapper {
+
+        private ServletOutputStream outputStream;
+
+        IgnoreFlushResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new IgnoreFlushOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public void flushBuffer() {
+            //Tomcat schreibt den Puffer beim Abschluss des Requests selbst
+        }
+    }
+
+    private static final class IgnoreFlushOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        IgnoreFlushOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            //siehe oben
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.neuefische.todobackend.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+
+/**
+ * Auslieferung des React-Frontends aus src/main/resources/static.
+ *
+ * - /static/** (js/css mit Hash im Namen, siehe asset-manifest.json): ein Jahr cachen und "immutable",
+ *   ein neuer Build hat neue Dateinamen
+ * - alles andere (index.html, manifest.json, Icons): nur kurz cachen, danach mit ETag nachfragen (304)
+ *
+ * Beim Packen legt PrecompressStaticResources (src/build) neben jede größere Datei eine .br und eine .gz Variante.
+ * Der EncodedResourceResolver liefert je nach Accept-Encoding die passende aus (mit Content-Encoding und Vary),
+ * ohne Variante oder beim Start aus der IDE gibt es die unkomprimierte Datei.
+ * Die Json-Antworten von /api/todo komprimiert dagegen Tomcat zur Laufzeit (server.compression.*).
+ */
+@Configuration
+public class StaticResourcesConfig implements WebMvcConfigurer {
+
+    private final Duration indexMaxAge;
+
+    public StaticResourcesConfig(@Value("${todo.static.index-max-age:60s}") Duration indexMaxAge) {
+        this.indexMaxAge = indexMaxAge;
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/static/**")
+                .addResourceLocations("classpath:/static/static/")
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver());
+
+        //Ersetzt den Standard-Handler von Spring Boot für /**
+        registry.addResourceHandler("/**")
+                .addResourceLocations("classpath:/static/")
+                .setCacheControl(CacheControl.maxAge(indexMaxAge).cachePublic().mustRevalidate())
+                .setEtagGenerator(StaticResourcesConfig::etag)
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver());
+    }
+
+    //Die Dateien sind klein und der Hash wird pro Request neu berechnet, so passt er auch nach einem Deployment
+    private static String etag(Resource resource) {
+        try (InputStream content = resource.getInputStream()) {
+            return DigestUtils.md5DigestAsHex(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,18 +1,47 @@
 package de.neuefische.todobackend.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import de.neuefische.todobackend.dto.BulkItemResult;
+import de.neuefische.todobackend.dto.BulkOperation;
+import de.neuefische.todobackend.dto.TodoGenerationRequest;
+import de.neuefische.todobackend.dto.TodoPage;
 import de.neuefische.todobackend.dto.TodoWOId;
+import de.neuefische.todobackend.event.TodoEventHub;
+import de.neuefische.todobackend.exception.InvalidRequestException;
+import de.neuefische.todobackend.model.GenerationJob;
 import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import de.neuefische.todobackend.service.IdempotencyStore;
 import de.neuefische.todobackend.service.TdService;
-import de.neuefische.todobackend.service.TodoService;
-import de.neuefische.todobackend.service.TodoServiceWithRestClient;
+import de.neuefische.todobackend.service.TodoGenerationJobService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/todo")
 public class TodoController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     /**
      * In diesem Beispiel halten wir uns die explizite Implementierung
      * offen und "verschieben" sie auf den Constructor (Weshalb wir ihn diesmal nicht über Lombok erzeugen)
@@ -32,31 +61,196 @@ public class TodoController {
      *  Ich habe 2 Services für unsere Todos, einer benutzt OpenAi mit dem RestClient, der andere nicht.
      *  Solange mein Token noch gültig ist, implementiere ich den openAI Service.
      *  Später gebe ich aber sehr einfach die Möglichkeit auf den Service ohne openAI umzusteigen.
+     *
+     *  Inzwischen wird der Service in der application.properties ausgewählt (todo.service=openai|mongo|memory),
+     *  der Controller kennt nur noch das Interface.
      */
     private final TdService todoService;
+    private final TodoGenerationJobService generationJobService;
+    private final TodoEventHub eventHub;
+    private final IdempotencyStore idempotencyStore;
+
+    private final int defaultPageLimit;
+    private final int maxPageLimit;
+
+    private final ObjectWriter exportWriter;
+    private final int exportFlushEvery;
+
+    private final int maxBulkOperations;
+
+    private final int maxGenerationCount;
 
-    public TodoController(TodoServiceWithRestClient todoService) {
+    public TodoController(TdService todoService,
+                          TodoGenerationJobService generationJobService,
+                          TodoEventHub eventHub,
+                          IdempotencyStore idempotencyStore,
+                          ObjectMapper objectMapper,
+                          @Value("${todo.pagination.default-limit:100}") int defaultPageLimit,
+                          @Value("${todo.pagination.max-limit:1000}") int maxPageLimit,
+                          @Value("${todo.export.flush-every:100}") int exportFlushEvery,
+                          @Value("${todo.bulk.max-operations:1000}") int maxBulkOperations,
+                          @Value("${todo.generation.max-count:50}") int maxGenerationCount) {
         this.todoService = todoService;
+        this.generationJobService = generationJobService;
+        this.eventHub = eventHub;
+        this.idempotencyStore = idempotencyStore;
+        this.defaultPageLimit = defaultPageLimit;
+        this.maxPageLimit = maxPageLimit;
+        //Beim Export entscheiden wir selbst wann geflusht wird, nicht Jackson nach jedem Eintrag
+        this.exportWriter = objectMapper.writerFor(Todo.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.exportFlushEvery = Math.max(1, exportFlushEvery);
+        this.maxBulkOperations = maxBulkOperations;
+        this.maxGenerationCount = maxGenerationCount;
     }
 
+    /**
+     * Liefert eine Seite von Todos, sortiert nach id.
+     * Die id des letzten Eintrags steht im Header "X-Next-Cursor" und wird beim nächsten Aufruf als "after" mitgegeben.
+     * Fehlt der Header, gibt es keine weiteren Einträge.
+     * Der Body bleibt eine einfache Liste, damit das Frontend weiterhin funktioniert.
+     *
+     * Mit status=OPEN|IN_PROGRESS|DONE werden nur Todos mit diesem Status geliefert (über den Index status_id).
+     *
+     * Mit unpaged=true bekommt man (wie früher) alle Todos auf einmal - Vorsicht bei großen Collections!
+     *
+     * Erledigte Todos, die lange nicht geändert wurden, sind archiviert (TodoArchiver) und fehlen hier,
+     * mit includeArchived=true sind sie dabei. Das liest zusätzlich die Archiv-Collection, also nur wenn nötig.
+     *
+     * Die Antwort hat einen ETag, schickt der Client ihn als If-None-Match mit und hat sich nichts geändert, kommt 304.
+     */
     @GetMapping
-    public List<Todo> getAllTodos() {
-        return todoService.findAllTodos();
+    public ResponseEntity<List<Todo>> getAllTodos(@RequestParam(required = false) TodoStatus status,
+                                                  @RequestParam(required = false) String after,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestParam(defaultValue = "false") boolean unpaged,
+                                                  @RequestParam(defaultValue = "false") boolean includeArchived) {
+        if (unpaged) {
+            if (status != null) {
+                throw new InvalidRequestException("status can not be combined with unpaged");
+            }
+            List<Todo> todos = todoService.findAllTodos(includeArchived);
+            return ResponseEntity.ok()
+                    .eTag(TodoETags.of(todos, null))
+                    .body(todos);
+        }
+
+        TodoPage page = todoService.findTodosAfter(status, after, resolvePageLimit(limit), includeArchived);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(TodoETags.of(page.todos(), page.nextCursor()));
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.todos());
+    }
+
+    /**
+     * Exportiert alle Todos als NDJSON (ein Todo pro Zeile).
+     * Die Todos werden direkt aus dem Mongo-Cursor in die Response geschrieben, es liegt also nie die
+     * ganze Collection im Speicher. Bricht der Client ab, schlägt das Schreiben fehl und der Cursor wird geschlossen.
+     */
+    @GetMapping(value = "/export", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTodos() {
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<Todo> todos = todoService.streamAllTodos()) {
+                writeNdjson(todos, outputStream);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(body);
+    }
+
+    /**
+     * Volltextsuche in der description, die relevantesten Todos zuerst (Mongo Text-Index, deutsches Stemming).
+     * Mehrere Wörter werden ODER-verknüpft, "in Anführungszeichen" sucht nach der Phrase, -wort schließt aus.
+     * Paging wie bei GET /api/todo über "X-Next-Cursor" und after, optional gefiltert nach status.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Todo>> searchTodos(@RequestParam String q,
+                                                  @RequestParam(required = false) TodoStatus status,
+                                                  @RequestParam(required = false) String after,
+                                                  @RequestParam(required = false) Integer limit) {
+        if (q.isBlank()) {
+            throw new InvalidRequestException("q must not be blank");
+        }
+
+        TodoPage page = todoService.searchTodos(q, status, after, resolvePageLimit(limit));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(TodoETags.of(page.todos(), page.nextCursor()));
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.todos());
+    }
+
+    /**
+     * Anzahl der Todos pro Status, z. B. {"OPEN": 3, "IN_PROGRESS": 1, "DONE": 7}.
+     * Die Zahlen werden bei jedem Schreiben mitgezählt, es werden keine Todos gelesen.
+     */
+    @GetMapping("/stats")
+    public Map<TodoStatus, Long> getStatusCounts() {
+        return todoService.getStatusCounts();
+    }
+
+    /**
+     * Server-Sent Events für jede Änderung an den Todos (CREATED, UPDATED, DELETED), statt GET /api/todo zu pollen.
+     * Das Frontend kann sich mit new EventSource("/api/todo/events") verbinden.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents() {
+        return eventHub.subscribe();
     }
 
     @GetMapping("/{id}")
-    public Todo getTodoById(@PathVariable String id) {
-        return todoService.findTodoById(id);
+    public ResponseEntity<Todo> getTodoById(@PathVariable String id,
+                                            @RequestParam(defaultValue = "false") boolean includeArchived) {
+        //Ohne includeArchived über den Proxy, damit der Cache greift
+        Todo todo = includeArchived ? todoService.findTodoById(id, true) : todoService.findTodoById(id);
+        return ResponseEntity.ok()
+                .eTag(TodoETags.of(todo))
+                .body(todo);
     }
 
+    /**
+     * Mit Header Idempotency-Key (z. B. eine UUID pro Todo im Client) legt ein wiederholter Request kein zweites Todo an,
+     * sondern bekommt die Antwort des ersten noch einmal, mit Header Idempotent-Replayed: true.
+     * Derselbe Key mit anderem Body gibt 422, läuft der erste Request noch auf einer anderen Instanz, kommt 409.
+     * Ohne Header wie bisher, dann wird im IdempotencyStore gar nicht erst nachgesehen.
+     */
     @PostMapping
-    public Todo postTodo(@RequestBody TodoWOId todoWOId) {
-        return todoService.addTodo(todoWOId);
+    public ResponseEntity<Todo> postTodo(@RequestBody TodoWOId todoWOId,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            Todo created = todoService.addTodo(todoWOId);
+            return ResponseEntity.ok()
+                    .eTag(TodoETags.of(created))
+                    .body(created);
+        }
+        IdempotencyStore.Result result = idempotencyStore.execute(idempotencyKey, todoWOId,
+                () -> todoService.addTodo(todoWOId));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(TodoETags.of(result.todo()));
+        if (result.replayed()) {
+            response.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+        }
+        return response.body(result.todo());
     }
 
+    /**
+     * Mit If-Match (ETag aus einem vorherigen GET) wird nur gespeichert, wenn das Todo seitdem nicht verändert wurde,
+     * sonst kommt 412. Ohne If-Match wird wie bisher einfach überschrieben.
+     * Bei mehreren ETags im If-Match reicht es, wenn einer davon passt.
+     */
     @PutMapping("/{id}")
-    public Todo putTodo(@RequestBody TodoWOId todo, @PathVariable String id) {
-        return todoService.updateTodo(todo, id);
+    public ResponseEntity<Todo> putTodo(@RequestBody TodoWOId todo,
+                                        @PathVariable String id,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        //Die Versionen prüft Mongo im Update selbst, nicht vorher über den (evtl. veralteten) Cache
+        Todo updated = todoService.updateTodo(todo, id, TodoETags.expectedVersions(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(TodoETags.of(updated))
+                .body(updated);
     }
 
     @DeleteMapping("/{id}")
@@ -64,8 +258,68 @@ public class TodoController {
         todoService.deleteTodo(id);
     }
 
+    /**
+     * Mehrere Creates/Updates/Deletes in einem Request und einem Roundtrip zur Datenbank.
+     * Die Operationen laufen ungeordnet, ein Fehler bei einer Operation stoppt die anderen nicht.
+     * Für jede Operation gibt es ein eigenes Ergebnis in der gleichen Reihenfolge wie im Request.
+     */
+    @PostMapping("/_bulk")
+    public List<BulkItemResult> bulkTodos(@RequestBody List<BulkOperation> operations) {
+        if (operations.size() > maxBulkOperations) {
+            throw new InvalidRequestException("A bulk request may contain at most " + maxBulkOperations + " operations");
+        }
+        return todoService.applyBulk(operations);
+    }
+
+    /**
+     * Startet das Generieren von Todos im Hintergrund und antwortet sofort mit 202 und dem Job.
+     * Den Fortschritt bekommt man über GET /api/todo/initialize/{jobId}.
+     * Gleiche Anfragen werden aus dem Cache beantwortet, mit bypassCache=true wird OpenAI trotzdem gefragt.
+     */
     @GetMapping("/initialize")
-    public void initializeTopics(){
-        todoService.generateStackOfTodos();
+    public ResponseEntity<GenerationJob> initializeTopics(@RequestParam(defaultValue = "Haushalt") String topic,
+                                                          @RequestParam(defaultValue = "10") int count,
+                                                          @RequestParam(defaultValue = "false") boolean bypassCache){
+        if (topic.isBlank()) {
+            throw new InvalidRequestException("topic must not be blank");
+        }
+        if (count < 1 || count > maxGenerationCount) {
+            throw new InvalidRequestException("count must be between 1 and " + maxGenerationCount);
+        }
+        GenerationJob job = generationJobService.submit(new TodoGenerationRequest(topic, count, bypassCache),
+                todoService::generateStackOfTodos);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/api/todo/initialize/" + job.id()))
+                .body(job);
+    }
+
+    @GetMapping("/initialize/{jobId}")
+    public GenerationJob getGenerationJob(@PathVariable String jobId) {
+        return generationJobService.findJobById(jobId);
+    }
+
+    private void writeNdjson(Stream<Todo> todos, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = exportWriter.createGenerator(outputStream)) {
+            generator.setRootValueSeparator(null);
+            int written = 0;
+            for (Todo todo : (Iterable<Todo>) todos::iterator) {
+                exportWriter.writeValue(generator, todo);
+                generator.writeRaw('\n');
+                if (++written % exportFlushEvery == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+
+    private int resolvePageLimit(Integer limit) {
+        if (limit == null) {
+            return defaultPageLimit;
+        }
+        if (limit < 1) {
+            throw new InvalidRequestException("limit must be greater than 0");
+        }
+        return Math.min(limit, maxPageLimit);
     }
 }
@@ -0,0 +1,90 @@
+package de.neuefische.todobackend.controller;
+
+import de.neuefische.todobackend.model.Todo;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * ETags für Todos, berechnet nur aus id und version - der Body muss dafür nicht serialisiert werden.
+ * Passt der ETag zu If-None-Match, antwortet Spring mit 304 ohne den Body überhaupt zu schreiben.
+ * Ein per PUT neu angelegtes Todo startet nicht bei Version 1 (siehe {@link Todo#firstUpsertedVersion()}),
+ * ein ETag von vor einem DELETE passt also nie zum neuen Todo mit derselben id.
+ */
+final class TodoETags {
+
+    private static final String ANY = "*";
+    //Keine Version, bei der Prüfung passt also nie ein Todo (-> 412)
+    static final long NO_MATCH = -1;
+
+    private TodoETags() {
+    }
+
+    static String of(Todo todo) {
+        return "\"" + versionOf(todo) + "\"";
+    }
+
+    //Jede Änderung, jedes neue und jedes gelöschte Todo auf der Seite ändert den ETag.
+    //Weak, weil Tomcat große Listen mit gzip komprimiert (server.compression.*) und das bei Strong ETags nicht darf.
+    //Für If-None-Match reicht das, If-Match gibt es nur für einzelne Todos.
+    static String of(List<Todo> todos, String nextCursor) {
+        MessageDigest digest = sha256();
+        for (Todo todo : todos) {
+            digest.update(todo.id().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ':');
+            digest.update(Long.toString(versionOf(todo)).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ';');
+        }
+        if (nextCursor != null) {
+            digest.update(nextCursor.getBytes(StandardCharsets.UTF_8));
+        }
+        //16 Byte reichen als ETag völlig
+        byte[] hash = digest.digest();
+        return "W/\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16)) + "\"";
+    }
+
+    /**
+     * Liest die erwarteten Versionen aus einem If-Match Header, z. B. "3" oder "3", "4" (RFC 9110: einer muss passen).
+     * null = kein Header oder "*" (keine Prüfung). Schwache oder unbekannte ETags passen nie (-> 412).
+     */
+    static List<Long> expectedVersions(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        //Unsere ETags sind Zahlen, ein Komma innerhalb eines ETags kann hier also nie passen
+        List<Long> versions = Arrays.stream(ifMatch.split(","))
+                .map(TodoETags::versionOf)
+                .filter(version -> version != NO_MATCH)
+                .distinct()
+                .toList();
+        return versions.isEmpty() ? List.of(NO_MATCH) : versions;
+    }
+
+    private static long versionOf(String etag) {
+        String trimmed = etag.trim();
+        if (trimmed.length() < 3 || !trimmed.startsWith("\"") || !trimmed.endsWith("\"")) {
+            return NO_MATCH;
+        }
+        try {
+            return Long.parseLong(trimmed.substring(1, trimmed.length() - 1));
+        } catch (NumberFormatException e) {
+            return NO_MATCH;
+        }
+    }
+
+    private static long versionOf(Todo todo) {
+        return todo.version() == null ? 0 : todo.version();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package de.neuefische.todobackend.dto;
+
+/**
+ * Ergebnis einer Operation aus einem Bulk-Request, index zeigt auf die Position im Request.
+ * status ist wie ein Http-Status zu lesen (200, 400, 409, ...), error ist nur bei Fehlern gesetzt.
+ */
+public record BulkItemResult(
+        int index,
+        BulkOperationType type,
+        String id,
+        int status,
+        String error
+) {
+
+    public static BulkItemResult ok(int index, BulkOperation operation) {
+        return new BulkItemResult(index, operation.type(), operation.id(), 200, null);
+    }
+
+    public static BulkItemResult failed(int index, BulkOperation operation, int status, String error) {
+        return new BulkItemResult(index, operation.type(), operation.id(), status, error);
+    }
+}
@@ -0,0 +1,30 @@
+package de.neuefische.todobackend.dto;
+
+/**
+ * Eine einzelne Operation innerhalb eines Bulk-Requests.
+ * CREATE braucht nur todo (die id wird vergeben), UPDATE braucht id und todo, DELETE nur die id.
+ */
+public record BulkOperation(
+        BulkOperationType type,
+        String id,
+        TodoWOId todo
+) {
+
+    public BulkOperation withId(String id) {
+        return new BulkOperation(type, id, todo);
+    }
+
+    //null wenn die Operation ausgeführt werden kann, sonst die Fehlermeldung für das BulkItemResult (400)
+    public String validationError() {
+        if (type == null) {
+            return "type is required";
+        }
+        if (id == null || id.isBlank()) {
+            return "id is required for " + type;
+        }
+        if (type != BulkOperationType.DELETE && todo == null) {
+            return "todo is required for " + type;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,7 @@
+package de.neuefische.todobackend.dto;
+
+public enum BulkOperationType {
+    CREATE,
+    UPDATE,
+    DELETE
+}
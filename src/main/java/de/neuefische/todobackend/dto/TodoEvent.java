@@ -0,0 +1,38 @@
+package de.neuefische.todobackend.dto;
+
+import de.neuefische.todobackend.model.Todo;
+
+/**
+ * Eine Änderung an einem Todo, wird über GET /api/todo/events an das Frontend geschickt.
+ * todo ist bei DELETED null.
+ */
+public record TodoEvent(
+        TodoEventType type,
+        String id,
+        Todo todo
+) {
+
+    public static TodoEvent created(Todo todo) {
+        return new TodoEvent(TodoEventType.CREATED, todo.id(), todo);
+    }
+
+    public static TodoEvent updated(Todo todo) {
+        return new TodoEvent(TodoEventType.UPDATED, todo.id(), todo);
+    }
+
+    public static TodoEvent deleted(String id) {
+        return new TodoEvent(TodoEventType.DELETED, id, null);
+    }
+
+    /**
+     * Für erfolgreich ausgeführte Bulk-Operationen.
+     * @param written der gespeicherte Stand des Todos (mit Version), bei DELETE null
+     */
+    public static TodoEvent of(BulkOperation operation, Todo written) {
+        return switch (operation.type()) {
+            case CREATE -> created(written);
+            case UPDATE -> updated(written);
+            case DELETE -> deleted(operation.id());
+        };
+    }
+}
@@ -0,0 +1,7 @@
+package de.neuefische.todobackend.dto;
+
+public enum TodoEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,8 @@
+package de.neuefische.todobackend.dto;
+
+public record TodoGenerationRequest(
+        String topic,
+        int count,
+        boolean bypassCache
+) {
+}
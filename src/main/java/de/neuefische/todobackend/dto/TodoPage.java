@@ -0,0 +1,49 @@
+package de.neuefische.todobackend.dto;
+
+import de.neuefische.todobackend.exception.InvalidRequestException;
+import de.neuefische.todobackend.model.Todo;
+
+import java.util.List;
+
+/**
+ * Eine Seite von Todos beim Keyset-Paging.
+ * nextCursor ist die id des letzten Eintrags, oder null wenn es keine weitere Seite gibt.
+ * Bei der Suche (sortiert nach Relevanz) ist nextCursor stattdessen der Offset der nächsten Seite.
+ */
+public record TodoPage(
+        List<Todo> todos,
+        String nextCursor
+) {
+
+    //Es wird immer limit + 1 Einträge geladen: Ist der zusätzliche Eintrag da, gibt es noch eine weitere Seite.
+    public static TodoPage of(List<Todo> fetched, int limit) {
+        if (fetched.size() <= limit) {
+            return new TodoPage(fetched, null);
+        }
+        List<Todo> page = fetched.subList(0, limit);
+        return new TodoPage(page, page.get(limit - 1).id());
+    }
+
+    public static TodoPage ofOffset(List<Todo> fetched, int offset, int limit) {
+        if (fetched.size() <= limit) {
+            return new TodoPage(fetched, null);
+        }
+        return new TodoPage(fetched.subList(0, limit), String.valueOf(offset + limit));
+    }
+
+    //Gegenstück zu ofOffset: der nextCursor der vorherigen Seite, null für die erste Seite
+    public static int parseOffset(String cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(cursor);
+            if (offset >= 0) {
+                return offset;
+            }
+        } catch (NumberFormatException e) {
+            //fällt unten durch
+        }
+        throw new InvalidRequestException("Invalid cursor: " + cursor);
+    }
+}
@@ -0,0 +1,88 @@
+package de.neuefische.todobackend.event;
+
+import de.neuefische.todobackend.dto.TodoEvent;
+import de.neuefische.todobackend.model.Todo;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Für mehrere Instanzen: todo.events.source=change-stream
+ * Liest alle Änderungen an der todo-Collection über einen Mongo Change Stream, egal auf welcher Instanz
+ * (oder ob überhaupt über unsere API) geschrieben wurde. Braucht ein Replica Set.
+ * Jede Instanz hält genau einen Change Stream, unabhängig davon wie viele Clients verbunden sind.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.events.source", havingValue = "change-stream")
+public class ChangeStreamTodoEventSource implements SmartLifecycle {
+
+    private final TodoEventHub hub;
+    private final MongoTemplate mongoTemplate;
+    private final MessageListenerContainer container;
+
+    public ChangeStreamTodoEventSource(TodoEventHub hub, MongoTemplate mongoTemplate) {
+        this.hub = hub;
+        this.mongoTemplate = mongoTemplate;
+        this.container = new DefaultMessageListenerContainer(mongoTemplate);
+    }
+
+    @Override
+    public void start() {
+        ChangeStreamRequest<Todo> request = ChangeStreamRequest.builder(this::onChange)
+                .collection(mongoTemplate.getCollectionName(Todo.class))
+                //Bei Updates liefert der Change Stream sonst nur die geänderten Felder
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+                .build();
+        container.start();
+        container.register(request, Todo.class);
+    }
+
+    private void onChange(Message<ChangeStreamDocument<Document>, Todo> message) {
+        ChangeStreamDocument<Document> change = message.getRaw();
+        if (change == null || change.getOperationType() == null) {
+            return;
+        }
+        switch (change.getOperationType()) {
+            case INSERT -> {
+                Todo todo = message.getBody();
+                if (todo != null) {
+                    hub.publish(TodoEvent.created(todo));
+                }
+            }
+            case UPDATE, REPLACE -> {
+                Todo todo = message.getBody();
+                if (todo != null) {
+                    hub.publish(TodoEvent.updated(todo));
+                }
+            }
+            case DELETE -> {
+                BsonValue id = change.getDocumentKey() == null ? null : change.getDocumentKey().get("_id");
+                if (id != null && id.isString()) {
+                    hub.publish(TodoEvent.deleted(id.asString().getValue()));
+                }
+            }
+            default -> {
+                //drop, rename, invalidate ... interessieren das Frontend nicht
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        container.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return container.isRunning();
+    }
+}
@@ -0,0 +1,26 @@
+package de.neuefische.todobackend.event;
+
+import de.neuefische.todobackend.dto.TodoEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Standard für eine einzelne Instanz: Die Events, die unsere TdService-Implementierungen veröffentlichen,
+ * gehen direkt an den Hub. Änderungen auf anderen Instanzen sieht man so nicht, dafür todo.events.source=change-stream.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.events.source", havingValue = "local", matchIfMissing = true)
+public class LocalTodoEventSource {
+
+    private final TodoEventHub hub;
+
+    public LocalTodoEventSource(TodoEventHub hub) {
+        this.hub = hub;
+    }
+
+    @EventListener
+    public void onTodoEvent(TodoEvent event) {
+        hub.publish(event);
+    }
+}
@@ -0,0 +1,11 @@
+package de.neuefische.todobackend.event;
+
+/**
+ * Was passiert, wenn der Puffer eines Subscribers voll ist, weil der Client nicht schnell genug liest.
+ */
+public enum SlowSubscriberPolicy {
+    //Das älteste Event im Puffer wird verworfen, der Client verpasst also Events
+    DROP_OLDEST,
+    //Die Verbindung wird geschlossen, der Browser (EventSource) verbindet sich neu und lädt die Liste neu
+    DISCONNECT
+}
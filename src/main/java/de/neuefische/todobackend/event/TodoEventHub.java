@@ -0,0 +1,157 @@
+package de.neuefische.todobackend.event;
+
+import de.neuefische.todobackend.dto.TodoEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Verteilt TodoEvents an alle offenen SSE-Verbindungen dieser Instanz.
+ *
+ * Ein wartender Subscriber belegt keinen Thread: Die Verbindung läuft als asynchroner Servlet-Request,
+ * der Hub hält nur den SseEmitter und einen begrenzten Puffer. Erst wenn Events anliegen, schreibt
+ * ein virtueller Thread den Puffer in die Response. Ein langsamer Client bremst so weder publish() noch die anderen.
+ */
+@Component
+public class TodoEventHub {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoEventHub.class);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("todo-events-", 1).factory());
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("todo-events-heartbeat").daemon().factory());
+
+    private final int bufferSize;
+    private final SlowSubscriberPolicy slowSubscriberPolicy;
+    private final long emitterTimeoutMillis;
+
+    public TodoEventHub(@Value("${todo.events.buffer-size:256}") int bufferSize,
+                        @Value("${todo.events.slow-subscriber-policy:disconnect}") SlowSubscriberPolicy slowSubscriberPolicy,
+                        @Value("${todo.events.emitter-timeout:30m}") Duration emitterTimeout,
+                        @Value("${todo.events.heartbeat-interval:30s}") Duration heartbeatInterval) {
+        this.bufferSize = bufferSize;
+        this.slowSubscriberPolicy = slowSubscriberPolicy;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        //Ohne regelmäßige Nachricht merken wir abgebrochene Verbindungen erst beim nächsten Event
+        //und Proxies schließen die scheinbar tote Verbindung
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat,
+                heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, bufferSize);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public void publish(TodoEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.offer(event, slowSubscriberPolicy)) {
+                log.debug("Disconnecting slow event subscriber");
+                disconnect(subscriber);
+                continue;
+            }
+            subscriber.scheduleSend(senders, this::disconnect);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void sendHeartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue.set(true);
+            subscriber.scheduleSend(senders, this::disconnect);
+        }
+    }
+
+    private void disconnect(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        senders.shutdown();
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<TodoEvent> buffer;
+        //Höchstens ein Thread schreibt gleichzeitig für diesen Subscriber, so bleibt die Reihenfolge erhalten
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        //false = Puffer voll und der Subscriber soll getrennt werden
+        private boolean offer(TodoEvent event, SlowSubscriberPolicy policy) {
+            while (!buffer.offer(event)) {
+                if (policy == SlowSubscriberPolicy.DISCONNECT) {
+                    return false;
+                }
+                buffer.poll();
+            }
+            return true;
+        }
+
+        private void scheduleSend(ExecutorService senders, Consumer<Subscriber> onFailure) {
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(() -> send(senders, onFailure));
+            }
+        }
+
+        private void send(ExecutorService senders, Consumer<Subscriber> onFailure) {
+            try {
+                TodoEvent event;
+                while ((event = buffer.poll()) != null) {
+                    emitter.send(SseEmitter.event()
+                            .name(event.type().name())
+                            .data(event));
+                }
+                if (heartbeatDue.getAndSet(false)) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                //Client ist weg (oder der Emitter schon abgeschlossen)
+                onFailure.accept(this);
+                return;
+            } finally {
+                sending.set(false);
+            }
+            //Events, die während des Schreibens dazugekommen sind, nicht liegen lassen
+            if (!buffer.isEmpty() || heartbeatDue.get()) {
+                scheduleSend(senders, onFailure);
+            }
+        }
+    }
+}
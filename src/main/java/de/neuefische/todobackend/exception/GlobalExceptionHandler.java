@@ -1,11 +1,13 @@
 package de.neuefische.todobackend.exception;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -16,4 +18,50 @@ public class GlobalExceptionHandler {
 
         return new ErrorMessage(exception.getMessage());
     }
+
+    //Nur selbst geprüfte Eingaben, siehe InvalidRequestException
+    @ExceptionHandler(InvalidRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorMessage handleInvalidRequestException(InvalidRequestException exception) {
+
+        return new ErrorMessage(exception.getMessage());
+    }
+
+    //If-Match passt nicht (mehr) zur aktuellen Version des Todos
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ErrorMessage handleOptimisticLockingFailureException(OptimisticLockingFailureException exception) {
+
+        return new ErrorMessage(exception.getMessage());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorMessage handleRejectedExecutionException(RejectedExecutionException exception) {
+
+        return new ErrorMessage("Too many background jobs, please try again later");
+    }
+
+    //Bulkhead voll oder Circuit Breaker offen, siehe OpenAiClient
+    @ExceptionHandler(OpenAiUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorMessage handleOpenAiUnavailableException(OpenAiUnavailableException exception) {
+
+        return new ErrorMessage(exception.getMessage());
+    }
+
+    //Idempotency-Key eines Requests, der noch läuft, siehe IdempotencyStore
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorMessage handleIdempotencyKeyInProgressException(IdempotencyKeyInProgressException exception) {
+
+        return new ErrorMessage(exception.getMessage());
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public ErrorMessage handleIdempotencyKeyReusedException(IdempotencyKeyReusedException exception) {
+
+        return new ErrorMessage(exception.getMessage());
+    }
 }
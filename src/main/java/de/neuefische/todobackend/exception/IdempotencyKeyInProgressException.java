@@ -0,0 +1,11 @@
+package de.neuefische.todobackend.exception;
+
+/**
+ * Ein Request mit dem gleichen Idempotency-Key läuft gerade auf einer anderen Instanz (-> 409, der Client wiederholt später).
+ */
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package de.neuefische.todobackend.exception;
+
+/**
+ * Der Idempotency-Key wurde schon für einen Request mit anderem Body benutzt (-> 422).
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
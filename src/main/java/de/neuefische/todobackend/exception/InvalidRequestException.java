@@ -0,0 +1,12 @@
+package de.neuefische.todobackend.exception;
+
+/**
+ * Parameter, Header oder Body eines Requests sind ungültig (-> 400 mit der Meldung).
+ * Andere IllegalArgumentExceptions (aus Spring, dem Mongo-Treiber usw.) bleiben ein 500 und verraten keine Details.
+ */
+public class InvalidRequestException extends IllegalArgumentException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package de.neuefische.todobackend.exception;
+
+/**
+ * OpenAI wird gerade nicht aufgerufen, weil zu viele Aufrufe laufen oder der Circuit Breaker offen ist (-> 503).
+ */
+public class OpenAiUnavailableException extends RuntimeException {
+
+    public OpenAiUnavailableException(String message) {
+        super(message);
+    }
+}
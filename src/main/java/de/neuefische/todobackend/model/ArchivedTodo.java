@@ -0,0 +1,33 @@
+package de.neuefische.todobackend.model;
+
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Ein Todo in der Archiv-Collection, außerhalb der todo-Collection, damit diese klein bleibt (siehe TodoArchiver):
+ * - erledigte Todos, die lange nicht geändert wurden (deletedAt = null), lesbar mit includeArchived=true
+ * - gelöschte Todos (Soft Delete), die Mongo nach todo.archive.deleted-retention über den TTL-Index auf deletedAt entfernt
+ */
+@Document("todo_archive")
+//Wie in Todo, für GET /api/todo?status=...&includeArchived=true
+@CompoundIndex(name = "status_id", def = "{'status': 1, '_id': 1}")
+public record ArchivedTodo(
+        String id,
+        String description,
+        TodoStatus status,
+        //Die letzte Version aus der todo-Collection, hier wird nicht mehr hochgezählt
+        Long version,
+        Instant archivedAt,
+        Instant deletedAt
+) {
+
+    public static ArchivedTodo deleted(Todo todo, Instant now) {
+        return new ArchivedTodo(todo.id(), todo.description(), todo.status(), todo.version(), now, now);
+    }
+
+    public Todo toTodo() {
+        return new Todo(id, description, status, version);
+    }
+}
@@ -0,0 +1,35 @@
+package de.neuefische.todobackend.model;
+
+/**
+ * Zustand eines Jobs, der im Hintergrund Todos über OpenAI generiert.
+ * created ist die Anzahl der Todos, die der Job bereits gespeichert hat.
+ */
+public record GenerationJob(
+        String id,
+        String topic,
+        int count,
+        GenerationJobStatus status,
+        int created,
+        String error
+) {
+
+    public GenerationJob withStatus(GenerationJobStatus status) {
+        return new GenerationJob(id, topic, count, status, created, error);
+    }
+
+    public GenerationJob withCreated(int created) {
+        return new GenerationJob(id, topic, count, status, created, error);
+    }
+
+    public GenerationJob done(int created) {
+        return new GenerationJob(id, topic, count, GenerationJobStatus.DONE, created, null);
+    }
+
+    public GenerationJob failed(String error) {
+        return new GenerationJob(id, topic, count, GenerationJobStatus.FAILED, created, error);
+    }
+
+    public boolean isFinished() {
+        return status == GenerationJobStatus.DONE || status == GenerationJobStatus.FAILED;
+    }
+}
@@ -0,0 +1,8 @@
+package de.neuefische.todobackend.model;
+
+public enum GenerationJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
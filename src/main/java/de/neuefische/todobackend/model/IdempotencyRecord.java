@@ -0,0 +1,49 @@
+package de.neuefische.todobackend.model;
+
+import de.neuefische.todobackend.dto.TodoWOId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Zweite Stufe von IdempotencyStore, key ist der Header Idempotency-Key von POST /api/todo.
+ * Solange response null ist, läuft der erste Request noch (auf dieser oder einer anderen Instanz).
+ * createdAt ist der Zeitpunkt, zu dem der aktuelle Besitzer den Key reserviert hat.
+ */
+@Document("idempotency_keys")
+public record IdempotencyRecord(
+        @Id String key,
+        TodoWOId request,
+        Response response,
+        Instant createdAt
+) {
+
+    public static IdempotencyRecord pending(String key, TodoWOId request, Instant now) {
+        return new IdempotencyRecord(key, request, null, now);
+    }
+
+    public IdempotencyRecord completed(Todo todo) {
+        return new IdempotencyRecord(key, request, Response.of(todo), createdAt);
+    }
+
+    public boolean isCompleted() {
+        return response != null;
+    }
+
+    public Todo todo() {
+        return response == null ? null : response.toTodo();
+    }
+
+    //Bewusst nicht Todo selbst: dessen Index-Annotationen würden mit auto-index-creation auch auf idempotency_keys landen
+    public record Response(String todoId, String description, TodoStatus status, Long version) {
+
+        static Response of(Todo todo) {
+            return new Response(todo.id(), todo.description(), todo.status(), todo.version());
+        }
+
+        Todo toTodo() {
+            return new Todo(todoId, description, status, version);
+        }
+    }
+}
@@ -1,10 +1,39 @@
 package de.neuefische.todobackend.model;
 
 import de.neuefische.todobackend.model.TodoStatus;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.TextIndexed;
+import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+
+//Index für "alle Todos mit Status X, sortiert nach id" -> Filter und Cursor-Pagination kommen ohne Collection-Scan aus
+//language = Sprache für Stemming und Stoppwörter im Text-Index ("Fenster" findet auch "Fenstern")
+//updatedAt steht nur in Mongo (gesetzt von TodoRepositoryCustomImpl und TodoUpdatedAtCallback), damit findet der TodoArchiver
+//alte erledigte Todos, ohne alle DONE-Todos zu lesen
+@Document(value = "todo", language = "german")
+@CompoundIndex(name = "status_id", def = "{'status': 1, '_id': 1}")
+@CompoundIndex(name = "status_updatedAt", def = "{'status': 1, 'updatedAt': 1}")
 public record Todo(
         String id,
-        String description,
-        TodoStatus status
+        @TextIndexed String description,
+        TodoStatus status,
+        //Wird von Mongo bei jedem Schreiben hochgezählt, daraus entsteht der ETag
+        @Version Long version
 ) {
+
+    public Todo(String id, String description, TodoStatus status) {
+        this(id, description, status, null);
+    }
+
+    /**
+     * Erste Version eines Todos, das per Upsert (PUT, Bulk-UPDATE) unter einer schon bekannten id angelegt wird.
+     * Die id kann vorher ein inzwischen gelöschtes Todo gehabt haben. Mit der aktuellen Zeit in Mikrosekunden als Start
+     * passt dessen alter ETag nie auf das neue Todo (weder für If-None-Match noch für If-Match).
+     */
+    public static long firstUpsertedVersion() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+    }
 }
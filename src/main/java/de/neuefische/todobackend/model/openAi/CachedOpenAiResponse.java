@@ -0,0 +1,17 @@
+package de.neuefische.todobackend.model.openAi;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Zweite Cache-Stufe für OpenAI-Antworten, key ist der SHA-256 Hash des kompletten OpenAiRequest.
+ */
+@Document("openai_responses")
+public record CachedOpenAiResponse(
+        @Id String key,
+        OpenAiResponse response,
+        Instant createdAt
+) {
+}
@@ -1,5 +1,7 @@
 package de.neuefische.todobackend.model.openAi;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,6 +18,7 @@ import java.util.List;
  *          }
  *      ]
  * }
+ * Beim Streaming zusätzlich "stream": true und "stream_options": {"include_usage": true}, siehe streaming().
  */
 @Data
 @AllArgsConstructor
@@ -25,6 +28,12 @@ public class OpenAiRequest {
     private String model;
     private List<OpenAiMessage> messages;
     private double temperature;
+    //Nur beim Streaming gesetzt, sonst fehlen die Felder im Json (und ändern damit auch den Cache-Key nicht)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stream;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("stream_options")
+    private OpenAiStreamOptions streamOptions;
 
     public OpenAiRequest(String question){
         this.model = "gpt-3.5-turbo";
@@ -32,4 +41,8 @@ public class OpenAiRequest {
         this.temperature = 0;
     }
 
+    public OpenAiRequest streaming() {
+        return new OpenAiRequest(model, messages, temperature, true, new OpenAiStreamOptions(true));
+    }
+
 }
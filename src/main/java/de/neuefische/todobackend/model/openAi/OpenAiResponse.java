@@ -20,7 +20,12 @@ import java.util.List;
  *             "logprobs": null,
  *             "finish_reason": "stop"
  *         }
- *     ]
+ *     ],
+ *     "usage": {
+ *         "prompt_tokens": 14,
+ *         "completion_tokens": 92,
+ *         "total_tokens": 106
+ *     }
  * }
  */
 @Data
@@ -30,6 +35,7 @@ public class OpenAiResponse {
 
     private String id;
     private List<OpenAiChoice> choices;
+    private OpenAiUsage usage;
 
     public String getAnswer(){
         return getChoices()
@@ -0,0 +1,21 @@
+package de.neuefische.todobackend.model.openAi;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * {
+ *     "index": 0,
+ *     "delta": {
+ *         "content": "1. Staub"
+ *     }
+ * }
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OpenAiStreamChoice {
+
+    private OpenAiMessage delta;
+}
@@ -0,0 +1,40 @@
+package de.neuefische.todobackend.model.openAi;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ein Event aus der Streaming-API (stream: true), jeweils nach "data: " in der Response:
+ * {
+ *     "id": "chatcmpl-9CNQNd1RVb04iwQcm5oS0RsZZMCsO",
+ *     "choices": [
+ *         {
+ *             "index": 0,
+ *             "delta": {
+ *                 "content": "1. Staub"
+ *             },
+ *             "finish_reason": null
+ *         }
+ *     ]
+ * }
+ * Mit stream_options.include_usage kommt am Ende noch ein Event ohne choices, nur mit usage.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OpenAiStreamChunk {
+
+    private String id;
+    private List<OpenAiStreamChoice> choices;
+    private OpenAiUsage usage;
+
+    public String getContent() {
+        if (choices == null || choices.isEmpty() || choices.get(0).getDelta() == null) {
+            return null;
+        }
+        return choices.get(0).getDelta().getContent();
+    }
+}
@@ -0,0 +1,13 @@
+package de.neuefische.todobackend.model.openAi;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * {
+ *     "include_usage": true
+ * }
+ */
+public record OpenAiStreamOptions(
+        @JsonProperty("include_usage") boolean includeUsage
+) {
+}
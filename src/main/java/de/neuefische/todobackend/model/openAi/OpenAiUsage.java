@@ -0,0 +1,26 @@
+package de.neuefische.todobackend.model.openAi;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * {
+ *     "prompt_tokens": 25,
+ *     "completion_tokens": 80,
+ *     "total_tokens": 105
+ * }
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OpenAiUsage {
+
+    @JsonProperty("prompt_tokens")
+    private long promptTokens;
+    @JsonProperty("completion_tokens")
+    private long completionTokens;
+    @JsonProperty("total_tokens")
+    private long totalTokens;
+}
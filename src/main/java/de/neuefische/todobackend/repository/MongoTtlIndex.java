@@ -0,0 +1,61 @@
+package de.neuefische.todobackend.repository;
+
+import com.mongodb.MongoException;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+import java.time.Duration;
+
+/**
+ * TTL-Index für die Collections, in denen Mongo alte Einträge selbst entfernt (Archiv, OpenAI-Cache, Idempotency-Keys).
+ *
+ * Die Komponenten dahinter laufen auch ohne Mongo (todo.service=memory mit Profil "memory"), dann ist ihr MongoTemplate
+ * null und sie arbeiten nur im Speicher, ensure tut dann nichts.
+ * Ändert sich die Dauer in der Konfiguration, lehnt Mongo ensureIndex mit IndexOptionsConflict ab. Dann wird
+ * expireAfterSeconds am bestehenden Index per collMod geändert, ohne den Index neu aufzubauen.
+ * Der TTL-Monitor von Mongo läuft ca. jede Minute, Einträge verschwinden also nicht auf die Sekunde genau.
+ */
+public final class MongoTtlIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoTtlIndex.class);
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+
+    private MongoTtlIndex() {
+    }
+
+    /**
+     * @param mongoTemplate null, wenn die Anwendung ohne Mongo läuft
+     */
+    public static void ensure(MongoTemplate mongoTemplate, Class<?> entityClass, String field, Duration ttl) {
+        if (mongoTemplate == null) {
+            return;
+        }
+        try {
+            mongoTemplate.indexOps(entityClass).ensureIndex(new Index(field, Sort.Direction.ASC).expire(ttl));
+        } catch (DataAccessException e) {
+            if (e.getMostSpecificCause() instanceof MongoException mongoException
+                    && mongoException.getCode() == INDEX_OPTIONS_CONFLICT) {
+                changeExpiry(mongoTemplate, entityClass, field, ttl);
+            } else {
+                log.warn("Could not create TTL index on {}.{}", mongoTemplate.getCollectionName(entityClass), field, e);
+            }
+        }
+    }
+
+    private static void changeExpiry(MongoTemplate mongoTemplate, Class<?> entityClass, String field, Duration ttl) {
+        String collection = mongoTemplate.getCollectionName(entityClass);
+        try {
+            mongoTemplate.executeCommand(new Document("collMod", collection)
+                    .append("index", new Document("keyPattern", new Document(field, 1))
+                            .append("expireAfterSeconds", ttl.toSeconds())));
+            log.info("Changed TTL of index on {}.{} to {}", collection, field, ttl);
+        } catch (DataAccessException e) {
+            log.warn("Could not change TTL of index on {}.{} to {}", collection, field, ttl, e);
+        }
+    }
+}
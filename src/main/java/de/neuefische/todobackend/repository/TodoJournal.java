@@ -0,0 +1,381 @@
+package de.neuefische.todobackend.repository;
+
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only Journal für den InMemoryTodoService, jede Änderung wird als Record in eine memory-mapped Datei geschrieben.
+ *
+ * Dateien im Verzeichnis:
+ * - journal-N.log: Records ab Generation N, es wird immer nur in die neueste Generation geschrieben
+ * - snapshot-N.dat: Stand aller Todos zu Beginn von Generation N (gleiches Format, nur PUT-Records)
+ *
+ * Beim Kompaktieren (rollover + writeSnapshot) entsteht eine neue Generation, danach werden ältere Dateien gelöscht.
+ * Beim Start wird der neueste Snapshot gelesen und danach alle Journale ab seiner Generation.
+ *
+ * Record: [int Länge][int CRC32C][byte Typ][Inhalt]. Länge 0 = Ende (die Datei ist mit Nullen vorbelegt).
+ * Ein halb geschriebener Record am Ende (Absturz) fällt über die Prüfsumme auf und wird ignoriert.
+ *
+ * Nicht thread-safe, append/rollover müssen vom Aufrufer serialisiert werden. force() darf parallel laufen.
+ */
+public class TodoJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoJournal.class);
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final Pattern FILE_NAME = Pattern.compile("(journal|snapshot)-(\\d+)\\.(log|dat)");
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private long generation;
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private long recordsSinceSnapshot;
+
+    public TodoJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Liest Snapshot und Journale ein und öffnet danach das Journal der neuesten Generation zum Schreiben.
+     */
+    public Map<String, Todo> replay() {
+        try {
+            Files.createDirectories(directory);
+            long snapshotGeneration = latestGeneration("snapshot");
+            long journalGeneration = latestGeneration("journal");
+
+            Map<String, Todo> todos = new HashMap<>();
+            if (snapshotGeneration >= 0) {
+                read(snapshotFile(snapshotGeneration), record -> apply(todos, record));
+            }
+            long first = Math.max(snapshotGeneration, 0);
+            for (long gen = first; gen <= journalGeneration; gen++) {
+                Path file = journalFile(gen);
+                if (Files.exists(file)) {
+                    recordsSinceSnapshot += read(file, record -> apply(todos, record));
+                }
+            }
+            generation = Math.max(first, journalGeneration);
+            openSegment(generation);
+            return todos;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay todo journal in " + directory, e);
+        }
+    }
+
+    public void appendPut(Todo todo) {
+        append(putBody(todo));
+    }
+
+    public void appendDelete(String id) {
+        byte[] idBytes = utf8(id);
+        ByteBuffer body = ByteBuffer.allocate(1 + sizeOf(idBytes)).put(DELETE);
+        putBytes(body, idBytes);
+        append(body.array());
+    }
+
+    //Anzahl Records seit dem letzten Snapshot, daran entscheidet der Aufrufer ob sich Kompaktieren lohnt
+    public long recordsSinceSnapshot() {
+        return recordsSinceSnapshot;
+    }
+
+    /**
+     * Beginnt eine neue Generation, ab jetzt wird in ein neues Journal geschrieben.
+     * Muss zum gleichen Zeitpunkt wie der Snapshot der Todos passieren (also unter dem gleichen Lock).
+     * @return die neue Generation, für writeSnapshot
+     */
+    public long rollover() {
+        try {
+            closeSegment();
+            generation++;
+            openSegment(generation);
+            recordsSinceSnapshot = 0;
+            return generation;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not roll over todo journal", e);
+        }
+    }
+
+    /**
+     * Schreibt den Stand zu Beginn der Generation und löscht danach alle älteren Dateien.
+     * Läuft ohne Lock, parallele Änderungen landen ja schon im Journal der neuen Generation.
+     */
+    public void writeSnapshot(long snapshotGeneration, Collection<Todo> todos) {
+        Path target = snapshotFile(snapshotGeneration);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 20);
+            for (Todo todo : todos) {
+                byte[] record = putRecord(todo);
+                if (chunk.remaining() < record.length) {
+                    writeFully(out, chunk);
+                    if (record.length > chunk.capacity()) {
+                        writeFully(out, ByteBuffer.wrap(record).position(record.length));
+                        continue;
+                    }
+                }
+                chunk.put(record);
+            }
+            writeFully(out, chunk);
+            out.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write todo snapshot " + target, e);
+        }
+        try {
+            //Erst durch das Umbenennen ist der Snapshot gültig, ein abgebrochener .tmp wird beim Start ignoriert
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            deleteOlderThan(snapshotGeneration);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replace todo snapshot " + target, e);
+        }
+    }
+
+    //Schreibt die geänderten Seiten auf die Platte, bis dahin liegen sie nur im Page-Cache des Betriebssystems
+    public void force() {
+        MappedByteBuffer current = buffer;
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+    }
+
+    private void append(byte[] body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        int recordLength = HEADER_BYTES + body.length;
+        //Es muss immer noch Platz für die 0 am Ende bleiben
+        if (buffer.remaining() < recordLength + 4) {
+            grow(recordLength + 4);
+        }
+        buffer.putInt(body.length)
+                .putInt((int) crc.getValue())
+                .put(body);
+        recordsSinceSnapshot++;
+    }
+
+    private void grow(int needed) {
+        try {
+            int position = buffer.position();
+            long newSize = Math.max((long) buffer.capacity() * 2, (long) position + needed);
+            if (newSize > Integer.MAX_VALUE) {
+                //Passiert nur wenn die Kompaktierung nicht hinterherkommt
+                throw new IllegalStateException("Journal segment is full, compaction is required");
+            }
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+            buffer.position(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not grow todo journal", e);
+        }
+    }
+
+    private void openSegment(long gen) throws IOException {
+        channel = FileChannel.open(journalFile(gen), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), segmentSize);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        mapped.position(endOfRecords(mapped));
+        buffer = mapped;
+    }
+
+    private void closeSegment() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        buffer.force();
+        channel.close();
+        channel = null;
+    }
+
+    //Position hinter dem letzten gültigen Record, dort geht es mit dem Schreiben weiter
+    private static int endOfRecords(ByteBuffer mapped) {
+        ByteBuffer view = mapped.duplicate();
+        int end = 0;
+        while (nextRecord(view) != null) {
+            end = view.position();
+        }
+        return end;
+    }
+
+    private static long read(Path file, Consumer<ByteBuffer> consumer) throws IOException {
+        long count = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (in.size() == 0) {
+                return 0;
+            }
+            MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            ByteBuffer record;
+            while ((record = nextRecord(mapped)) != null) {
+                consumer.accept(record);
+                count++;
+            }
+            if (mapped.remaining() >= 4 && mapped.getInt(mapped.position()) != 0) {
+                log.warn("Ignoring corrupt or incomplete record at offset {} in {}", mapped.position(), file);
+            }
+        }
+        return count;
+    }
+
+    //Liefert den Inhalt des nächsten Records, oder null am Ende bzw. bei einem kaputten Record
+    private static ByteBuffer nextRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        if (length <= 0 || length > buffer.remaining() - HEADER_BYTES) {
+            return null;
+        }
+        int checksum = buffer.getInt(start + 4);
+        ByteBuffer body = buffer.slice(start + HEADER_BYTES, length);
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        buffer.position(start + HEADER_BYTES + length);
+        return body;
+    }
+
+    private static void apply(Map<String, Todo> todos, ByteBuffer record) {
+        try {
+            byte type = record.get();
+            if (type == PUT) {
+                long version = record.getLong();
+                String id = getString(record);
+                String description = getString(record);
+                String status = getString(record);
+                todos.put(id, new Todo(id, description, status == null ? null : TodoStatus.valueOf(status), version));
+            } else if (type == DELETE) {
+                todos.remove(getString(record));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("Skipping unreadable journal record", e);
+        }
+    }
+
+    private static byte[] putBody(Todo todo) {
+        byte[] id = utf8(todo.id());
+        byte[] description = todo.description() == null ? null : utf8(todo.description());
+        byte[] status = todo.status() == null ? null : utf8(todo.status().name());
+        ByteBuffer body = ByteBuffer.allocate(1 + 8 + sizeOf(id) + sizeOf(description) + sizeOf(status))
+                .put(PUT)
+                .putLong(todo.version() == null ? 0 : todo.version());
+        putBytes(body, id);
+        putBytes(body, description);
+        putBytes(body, status);
+        return body.array();
+    }
+
+    private static byte[] putRecord(Todo todo) {
+        byte[] body = putBody(todo);
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return ByteBuffer.allocate(HEADER_BYTES + body.length)
+                .putInt(body.length)
+                .putInt((int) crc.getValue())
+                .put(body)
+                .array();
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    //-1 als Länge steht für null
+    private static int sizeOf(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            out.write(chunk);
+        }
+        chunk.clear();
+    }
+
+    private long latestGeneration(String kind) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> FILE_NAME.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .filter(matcher -> matcher.group(1).equals(kind))
+                    .mapToLong(matcher -> Long.parseLong(matcher.group(2)))
+                    .max()
+                    .orElse(-1);
+        }
+    }
+
+    private void deleteOlderThan(long gen) throws IOException {
+        List<Path> old;
+        try (Stream<Path> files = Files.list(directory)) {
+            old = files.filter(file -> {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                return matcher.matches() && Long.parseLong(matcher.group(2)) < gen;
+            }).toList();
+        }
+        for (Path file : old) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private Path journalFile(long gen) {
+        return directory.resolve("journal-" + gen + ".log");
+    }
+
+    private Path snapshotFile(long gen) {
+        return directory.resolve("snapshot-" + gen + ".dat");
+    }
+}
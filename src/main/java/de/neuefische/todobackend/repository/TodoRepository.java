@@ -1,9 +1,27 @@
 package de.neuefische.todobackend.repository;
 
 import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
-public interface TodoRepository extends MongoRepository<Todo, String> {
+public interface TodoRepository extends MongoRepository<Todo, String>, TodoRepositoryCustom {
+
+    //Range-Queries auf _id -> nutzen den Default-Index der Collection, kein Skip/Offset nötig
+    List<Todo> findAllByOrderByIdAsc(Limit limit);
+
+    List<Todo> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    //Nutzen den Index status_id aus Todo
+    List<Todo> findByStatusOrderByIdAsc(TodoStatus status, Limit limit);
+
+    List<Todo> findByStatusAndIdGreaterThanOrderByIdAsc(TodoStatus status, String id, Limit limit);
+
+    //Liest über einen offenen Mongo-Cursor, der Stream MUSS nach Benutzung geschlossen werden (try-with-resources)
+    Stream<Todo> streamAllByOrderByIdAsc();
 }
@@ -0,0 +1,93 @@
+package de.neuefische.todobackend.repository;
+
+import de.neuefische.todobackend.dto.BulkItemResult;
+import de.neuefische.todobackend.dto.BulkOperation;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Alles was wir nicht über abgeleitete Query-Methoden abbilden können, wird hier mit dem MongoTemplate umgesetzt.
+ * Spring Data hängt die Implementierung (TodoRepositoryCustomImpl) automatisch an das TodoRepository.
+ *
+ * Alle schreibenden Methoden hier pflegen auch die Zähler pro TodoStatus mit,
+ * Todos sollten also über diese Methoden geschrieben werden und nicht über save/deleteById.
+ */
+public interface TodoRepositoryCustom {
+
+    Todo insertTodo(Todo todo);
+
+    List<Todo> insertTodos(List<Todo> todos);
+
+    /**
+     * Überschreibt description und status, legt das Todo an falls es die id noch nicht gibt.
+     */
+    Todo upsertTodo(Todo todo);
+
+    /**
+     * Wie upsertTodo, aber nur wenn das Todo existiert und noch eine der erwarteten Versionen hat (geprüft von Mongo
+     * im selben Update). Sonst gibt es eine OptimisticLockingFailureException.
+     */
+    Todo updateTodoIfVersion(Todo todo, List<Long> expectedVersions);
+
+    /**
+     * Setzt für alle Todos die neue description in einem bulkWrite, aber nur wenn sie noch die Version aus dem Todo haben.
+     * Der Status bleibt unverändert, die Zähler müssen also nicht angepasst werden.
+     * @return die geänderten Todos mit ihrer neuen Version, Todos die inzwischen geändert oder gelöscht wurden fehlen
+     */
+    List<Todo> updateDescriptionsIfVersion(List<Todo> todos);
+
+    /**
+     * Soft Delete: verschiebt das Todo mit deletedAt ins Archiv (ArchivedTodo), Mongo löscht es dort erst nach
+     * todo.archive.deleted-retention. Ein bereits archiviertes Todo wird dort als gelöscht markiert.
+     * @return false wenn es kein (nicht gelöschtes) Todo mit der id gab
+     */
+    boolean removeTodo(String id);
+
+    /**
+     * Verschiebt bis zu batchSize Todos mit Status DONE, die seit updatedBefore nicht geändert wurden, ins Archiv.
+     * Aus der todo-Collection wird nur gelöscht, was sich seit dem Lesen nicht geändert hat.
+     * @return die ids der archivierten Todos
+     */
+    List<String> archiveDoneTodos(Instant updatedBefore, int batchSize);
+
+    /**
+     * Nach id sortiert, aktive und archivierte (nicht gelöschte) Todos zusammen.
+     * @param status null = alle Status
+     * @param after id des letzten Todos der vorherigen Seite, null für die erste Seite
+     */
+    List<Todo> findTodosAfterIncludingArchived(TodoStatus status, String after, int limit);
+
+    List<Todo> findAllIncludingArchived();
+
+    //Nur archivierte, nicht gelöschte Todos
+    Optional<Todo> findArchivedById(String id);
+
+    /**
+     * Führt CREATE und UPDATE als ungeordneten bulkWrite aus (ein Roundtrip, mehr nur bei mehreren Operationen
+     * auf dieselbe id), DELETE einzeln. Die Zähler pro Status folgen dem, was wirklich geschrieben wurde.
+     * CREATE Operationen müssen bereits eine id haben.
+     */
+    List<BulkItemResult> bulkWrite(List<BulkOperation> operations);
+
+    /**
+     * Volltextsuche über den Text-Index auf description, die relevantesten Todos zuerst.
+     * @param status null = alle Status
+     */
+    List<Todo> searchTodos(String text, TodoStatus status, int offset, int limit);
+
+    /**
+     * Anzahl Todos pro Status aus dem Zähler-Dokument, ohne die Todos selbst zu lesen.
+     */
+    Map<TodoStatus, Long> countByStatus();
+
+    /**
+     * Zählt die Todos pro Status neu und korrigiert damit das Zähler-Dokument (siehe TodoCountReconciler).
+     * @return die gezählten Werte
+     */
+    Map<TodoStatus, Long> reconcileStatusCounts();
+}
@@ -0,0 +1,608 @@
+package de.neuefische.todobackend.repository;
+
+import de.neuefische.todobackend.dto.BulkItemResult;
+import de.neuefische.todobackend.dto.BulkOperation;
+import de.neuefische.todobackend.dto.BulkOperationType;
+import de.neuefische.todobackend.model.ArchivedTodo;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class TodoRepositoryCustomImpl implements TodoRepositoryCustom {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    //Ein einziges Dokument mit einem Feld pro Status, z. B. { _id: "status", OPEN: 3, IN_PROGRESS: 1, DONE: 7 }
+    static final String COUNTERS_COLLECTION = "todo_counters";
+    private static final String STATUS_COUNTERS_ID = "status";
+    //Fehlt das Feld, stehen im Zähler-Dokument nur $inc seit dem Anlegen, aber noch nicht die vorhandenen Todos
+    private static final String RECONCILED_AT = "reconciledAt";
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    //Zeitpunkt der letzten Änderung, nur in Mongo (siehe Todo), danach richtet sich der TodoArchiver
+    static final String UPDATED_AT = "updatedAt";
+    //Gesetzt = gelöscht, der TTL-Index darauf kommt vom TodoArchiver (Dauer aus todo.archive.deleted-retention)
+    static final String DELETED_AT = "deletedAt";
+
+    private final MongoTemplate mongoTemplate;
+
+    TodoRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Todo insertTodo(Todo todo) {
+        Todo inserted = mongoTemplate.insert(todo);
+        incrementStatusCounts(Map.of(inserted.status(), 1L));
+        return inserted;
+    }
+
+    @Override
+    public List<Todo> insertTodos(List<Todo> todos) {
+        List<Todo> inserted = new ArrayList<>(mongoTemplate.insertAll(todos));
+        incrementStatusCounts(inserted.stream()
+                .collect(Collectors.groupingBy(Todo::status, Collectors.counting())));
+        return inserted;
+    }
+
+    @Override
+    public Todo upsertTodo(Todo todo) {
+        return modify(byId(todo.id()), todo, true);
+    }
+
+    @Override
+    public Todo updateTodoIfVersion(Todo todo, List<Long> expectedVersions) {
+        Query query = expectedVersions.contains(0L)
+                //Todos von vor der Einführung der Version haben noch kein version-Feld
+                ? byId(todo.id()).addCriteria(new Criteria().orOperator(
+                        Criteria.where("version").in(expectedVersions), Criteria.where("version").exists(false)))
+                : byId(todo.id()).addCriteria(Criteria.where("version").in(expectedVersions));
+
+        Todo updated = modify(query, todo, false);
+        if (updated == null) {
+            throw new OptimisticLockingFailureException("Todo with id: " + todo.id() + " was modified or deleted in the meantime");
+        }
+        return updated;
+    }
+
+    private Todo modify(Query query, Todo todo, boolean upsert) {
+        //Liefert den Stand VOR dem Update, so wissen wir ohne extra Query ob sich der Status geändert hat
+        //und welche Version das Todo jetzt hat ($inc ist atomar)
+        Todo previous = mongoTemplate.findAndModify(query,
+                Update.update("description", todo.description()).set("status", todo.status()).inc("version", 1)
+                        .set(UPDATED_AT, Instant.now()),
+                FindAndModifyOptions.options().returnNew(false),
+                Todo.class);
+        if (previous == null && !upsert) {
+            return null;
+        }
+        if (previous == null) {
+            //Kein Upsert per $inc, das Todo würde wieder mit Version 1 anfangen (siehe Todo.firstUpsertedVersion)
+            Todo created = new Todo(todo.id(), todo.description(), todo.status(), Todo.firstUpsertedVersion());
+            try {
+                mongoTemplate.insert(upsertedDocument(created), mongoTemplate.getCollectionName(Todo.class));
+            } catch (DuplicateKeyException e) {
+                //Gerade parallel angelegt, dann ist es ein normales Update
+                return modify(query, todo, false);
+            }
+            //PUT auf ein archiviertes oder gelöschtes Todo holt es zurück, die Kopie im Archiv ist damit überholt
+            mongoTemplate.remove(byId(todo.id()), ArchivedTodo.class);
+            incrementStatusCounts(Map.of(todo.status(), 1L));
+            return created;
+        }
+
+        Map<TodoStatus, Long> delta = new HashMap<>();
+        delta.merge(todo.status(), 1L, Long::sum);
+        delta.merge(previous.status(), -1L, Long::sum);
+        incrementStatusCounts(delta);
+        return new Todo(todo.id(), todo.description(), todo.status(), nextVersion(previous));
+    }
+
+    //Als Document statt als Todo, beim Insert eines Todos setzt Spring Data die @Version sonst auf 0 zurück
+    private Document upsertedDocument(Todo todo) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(todo, document);
+        document.put(UPDATED_AT, new Date());
+        return document;
+    }
+
+    private static long nextVersion(Todo previous) {
+        return previous == null || previous.version() == null ? 1 : previous.version() + 1;
+    }
+
+    @Override
+    public List<Todo> updateDescriptionsIfVersion(List<Todo> todos) {
+        if (todos.isEmpty()) {
+            return List.of();
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Todo.class);
+        Map<String, Todo> expected = new HashMap<>();
+        for (Todo todo : todos) {
+            bulk.updateOne(byId(todo.id()).addCriteria(Criteria.where("version").is(todo.version())),
+                    Update.update("description", todo.description()).inc("version", 1).set(UPDATED_AT, Instant.now()));
+            expected.put(todo.id(), new Todo(todo.id(), todo.description(), null, nextVersion(todo)));
+        }
+        bulk.execute();
+
+        //bulkWrite sagt nur wie viele Updates gegriffen haben, nicht welche -> einmal über den _id-Index nachlesen
+        return mongoTemplate.find(Query.query(Criteria.where("id").in(expected.keySet())), Todo.class).stream()
+                .filter(todo -> {
+                    Todo wanted = expected.get(todo.id());
+                    return wanted.version().equals(todo.version()) && wanted.description().equals(todo.description());
+                })
+                .toList();
+    }
+
+    @Override
+    public boolean removeTodo(String id) {
+        Instant now = Instant.now();
+        Todo removed = mongoTemplate.findAndRemove(byId(id), Todo.class);
+        if (removed == null) {
+            return mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(id).and(DELETED_AT).is(null)),
+                    Update.update(DELETED_AT, now), ArchivedTodo.class).getModifiedCount() > 0;
+        }
+        incrementStatusCounts(Map.of(removed.status(), -1L));
+        //Fällt die Anwendung genau hier aus, ist das Todo hart gelöscht wie vor dem Soft Delete
+        mongoTemplate.save(ArchivedTodo.deleted(removed, now));
+        return true;
+    }
+
+    @Override
+    public List<String> archiveDoneTodos(Instant updatedBefore, int batchSize) {
+        //Todos von vor der Einführung von updatedAt gelten als alt
+        Query query = Query.query(Criteria.where("status").is(TodoStatus.DONE).orOperator(
+                        Criteria.where(UPDATED_AT).lt(updatedBefore), Criteria.where(UPDATED_AT).exists(false)))
+                .limit(batchSize);
+        List<Todo> candidates = mongoTemplate.find(query, Todo.class);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        //Erst ins Archiv (ein abgebrochener Lauf wird beim nächsten Mal einfach wiederholt), aber nie über einen Soft Delete,
+        //dann aus der todo-Collection löschen, aber nur mit unveränderter Version -> ein paralleles PUT gewinnt
+        Instant now = Instant.now();
+        BulkOperations archive = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ArchivedTodo.class);
+        candidates.forEach(todo -> archive.upsert(byId(todo.id()).addCriteria(Criteria.where(DELETED_AT).is(null)),
+                Update.update("description", todo.description()).set("status", todo.status())
+                        .set("version", todo.version()).set("archivedAt", now)));
+        Map<Integer, BulkWriteError> errors = execute(archive).errors();
+        //Duplicate Key heißt: im Archiv liegt schon ein Soft Delete, das Todo wird gerade gelöscht -> auslassen
+        errors.values().stream()
+                .filter(error -> error.getCode() != DUPLICATE_KEY)
+                .findFirst()
+                .ifPresent(error -> {
+                    throw new UncategorizedMongoDbException("Could not archive todos: " + error.getMessage(), null);
+                });
+
+        List<String> archived = new ArrayList<>();
+        List<Todo> kept = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Todo todo = candidates.get(i);
+            if (errors.containsKey(i)) {
+                continue;
+            }
+            //Nur was dieser Lauf selbst gelöscht hat, zählt (paralleles DELETE oder ein anderer Archiver -> 0)
+            if (mongoTemplate.remove(byId(todo.id()).addCriteria(Criteria.where("version").is(todo.version())), Todo.class)
+                    .getDeletedCount() == 1) {
+                archived.add(todo.id());
+            } else {
+                kept.add(todo);
+            }
+        }
+
+        //Ist das Todo noch da, hat ein paralleles PUT gewonnen -> unsere Kopie wieder aus dem Archiv nehmen
+        if (!kept.isEmpty()) {
+            Query remainingQuery = Query.query(Criteria.where("id").in(kept.stream().map(Todo::id).toList()));
+            remainingQuery.fields().include("_id");
+            Set<String> remaining = mongoTemplate.find(remainingQuery, Todo.class).stream()
+                    .map(Todo::id)
+                    .collect(Collectors.toSet());
+            kept.stream()
+                    .filter(todo -> remaining.contains(todo.id()))
+                    .forEach(todo -> mongoTemplate.remove(byId(todo.id()).addCriteria(Criteria.where(DELETED_AT).is(null)
+                            .and("version").is(todo.version())), ArchivedTodo.class));
+        }
+        incrementStatusCounts(Map.of(TodoStatus.DONE, -(long) archived.size()));
+        return archived;
+    }
+
+    @Override
+    public List<Todo> findTodosAfterIncludingArchived(TodoStatus status, String after, int limit) {
+        List<Todo> active = mongoTemplate.find(page(status, after, limit), Todo.class);
+        List<Todo> archived = mongoTemplate.find(page(status, after, limit).addCriteria(Criteria.where(DELETED_AT).is(null)),
+                        ArchivedTodo.class).stream()
+                .map(ArchivedTodo::toTodo)
+                .toList();
+        return merge(active, archived, limit);
+    }
+
+    @Override
+    public List<Todo> findAllIncludingArchived() {
+        List<Todo> active = mongoTemplate.find(new Query().with(Sort.by("id")), Todo.class);
+        List<Todo> archived = mongoTemplate.find(Query.query(Criteria.where(DELETED_AT).is(null)).with(Sort.by("id")),
+                        ArchivedTodo.class).stream()
+                .map(ArchivedTodo::toTodo)
+                .toList();
+        return merge(active, archived, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Optional<Todo> findArchivedById(String id) {
+        return Optional.ofNullable(mongoTemplate.findOne(byId(id).addCriteria(Criteria.where(DELETED_AT).is(null)),
+                        ArchivedTodo.class))
+                .map(ArchivedTodo::toTodo);
+    }
+
+    private static Query page(TodoStatus status, String after, int limit) {
+        Query query = new Query().with(Sort.by("id")).limit(limit);
+        if (status != null) {
+            query.addCriteria(Criteria.where("status").is(status));
+        }
+        if (after != null) {
+            query.addCriteria(Criteria.where("id").gt(after));
+        }
+        return query;
+    }
+
+    //Beide Listen sind nach id sortiert. Steht eine id in beiden (Archivieren noch nicht abgeschlossen), gilt das aktive Todo
+    private static List<Todo> merge(List<Todo> active, List<Todo> archived, int limit) {
+        List<Todo> merged = new ArrayList<>(Math.min(limit, active.size() + archived.size()));
+        int a = 0;
+        int b = 0;
+        while (merged.size() < limit && (a < active.size() || b < archived.size())) {
+            int compare = a == active.size() ? 1
+                    : b == archived.size() ? -1
+                    : active.get(a).id().compareTo(archived.get(b).id());
+            if (compare <= 0) {
+                merged.add(active.get(a++));
+            }
+            if (compare >= 0) {
+                Todo todo = archived.get(b++);
+                if (compare > 0) {
+                    merged.add(todo);
+                }
+            }
+        }
+        return merged;
+    }
+
+    private void saveInArchive(List<ArchivedTodo> todos) {
+        if (todos.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ArchivedTodo.class);
+        todos.forEach(todo -> bulk.replaceOne(byId(todo.id()), todo, FindAndReplaceOptions.options().upsert()));
+        bulk.execute();
+    }
+
+    @Override
+    public List<BulkItemResult> bulkWrite(List<BulkOperation> operations) {
+        BulkItemResult[] results = new BulkItemResult[operations.size()];
+        //Positionen der gültigen Operationen im Request, ungültige werden gar nicht erst gesendet
+        List<Integer> sent = new ArrayList<>();
+
+        for (int i = 0; i < operations.size(); i++) {
+            BulkOperation operation = operations.get(i);
+            if (operation == null) {
+                results[i] = new BulkItemResult(i, null, null, 400, "operation must not be null");
+                continue;
+            }
+            String invalid = operation.validationError();
+            if (invalid != null) {
+                results[i] = BulkItemResult.failed(i, operation, 400, invalid);
+                continue;
+            }
+            sent.add(i);
+        }
+        if (sent.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        //Bisheriger Stand der betroffenen Todos über den _id-Index. Ein UPDATE schreibt nur, wenn die Version noch passt,
+        //und ein DELETE liefert, was es entfernt hat -> das Delta für die Zähler kommt aus dem Ergebnis des Schreibens,
+        //auch wenn ein anderer Request das Todo dazwischen ändert. Der TodoCountReconciler ist nur noch Absicherung.
+        Map<String, Todo> current = findByIds(sent.stream()
+                .map(operations::get)
+                .filter(operation -> operation.type() != BulkOperationType.CREATE)
+                .map(BulkOperation::id)
+                .toList());
+        Map<TodoStatus, Long> delta = new HashMap<>();
+        //Was im Archiv passieren muss, pro id gilt die letzte Operation (wie bei removeTodo und modify)
+        Map<String, ArchivedTodo> deleted = new HashMap<>();
+        Set<String> deletedInArchive = new HashSet<>();
+        Set<String> restoredFromArchive = new HashSet<>();
+        Instant now = Instant.now();
+
+        for (List<Integer> round : rounds(operations, sent)) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Todo.class);
+            //Position im bulkWrite -> Position im Request und der Stand, den das Todo danach haben soll
+            List<Integer> inBulk = new ArrayList<>();
+            List<Todo> expected = new ArrayList<>();
+            for (int index : round) {
+                BulkOperation operation = operations.get(index);
+                Todo previous = current.get(operation.id());
+                switch (operation.type()) {
+                    case CREATE -> {
+                        Todo created = new Todo(operation.id(), operation.todo().description(), operation.todo().status(), 0L);
+                        bulk.insert(created);
+                        expected.add(created);
+                    }
+                    //Nur mit der gelesenen Version: hat ein anderer Request das Todo geändert, passt der Filter nicht
+                    //und das upsert scheitert am _id -> 409. Ist es inzwischen gelöscht, legt das upsert es neu an.
+                    case UPDATE -> {
+                        if (previous != null) {
+                            bulk.upsert(byId(operation.id()).addCriteria(previous.version() == null
+                                            ? Criteria.where("version").exists(false)
+                                            : Criteria.where("version").is(previous.version())),
+                                    Update.update("description", operation.todo().description())
+                                            .set("status", operation.todo().status())
+                                            .inc("version", 1)
+                                            .set(UPDATED_AT, now));
+                            expected.add(new Todo(operation.id(), operation.todo().description(), operation.todo().status(),
+                                    nextVersion(previous)));
+                        } else {
+                            //Unbekannte id: anlegen wie beim PUT, mit eigener Startversion statt 1 (siehe Todo.firstUpsertedVersion).
+                            //Legt ein anderer Request es gerade parallel an, gibt es für diese Operation 409.
+                            Todo created = new Todo(operation.id(), operation.todo().description(), operation.todo().status(),
+                                    Todo.firstUpsertedVersion());
+                            bulk.insert(upsertedDocument(created));
+                            expected.add(created);
+                        }
+                    }
+                    //Einzeln, ein remove im bulkWrite sagt nicht, welches Todo es wirklich gelöscht hat
+                    case DELETE -> {
+                        Todo removed = mongoTemplate.findAndRemove(byId(operation.id()), Todo.class);
+                        results[index] = BulkItemResult.ok(index, operation);
+                        current.remove(operation.id());
+                        restoredFromArchive.remove(operation.id());
+                        if (removed != null) {
+                            delta.merge(removed.status(), -1L, Long::sum);
+                            deletedInArchive.remove(operation.id());
+                            deleted.put(operation.id(), ArchivedTodo.deleted(removed, now));
+                        } else if (!deleted.containsKey(operation.id())) {
+                            //Nicht mehr in der todo-Collection, vielleicht aber archiviert
+                            deletedInArchive.add(operation.id());
+                        }
+                        continue;
+                    }
+                }
+                inBulk.add(index);
+            }
+            if (inBulk.isEmpty()) {
+                continue;
+            }
+
+            BulkResult result = execute(bulk);
+            for (int bulkIndex = 0; bulkIndex < inBulk.size(); bulkIndex++) {
+                int index = inBulk.get(bulkIndex);
+                BulkOperation operation = operations.get(index);
+                BulkWriteError error = result.errors().get(bulkIndex);
+                if (error != null) {
+                    results[index] = BulkItemResult.failed(index, operation, error.getCode() == DUPLICATE_KEY ? 409 : 500, error.getMessage());
+                    continue;
+                }
+                results[index] = BulkItemResult.ok(index, operation);
+
+                Todo written = expected.get(bulkIndex);
+                Todo previous = current.get(operation.id());
+                boolean updated = operation.type() == BulkOperationType.UPDATE && previous != null
+                        && !result.upserted().contains(bulkIndex);
+                if (updated) {
+                    delta.merge(previous.status(), -1L, Long::sum);
+                } else if (operation.type() == BulkOperationType.UPDATE) {
+                    if (previous != null) {
+                        //Parallel gelöscht und vom upsert neu angelegt, die Version ginge sonst einfach weiter
+                        written = restartVersion(written);
+                    }
+                    //upsert auf ein archiviertes oder gelöschtes Todo holt es zurück
+                    deleted.remove(operation.id());
+                    deletedInArchive.remove(operation.id());
+                    restoredFromArchive.add(operation.id());
+                }
+                delta.merge(written.status(), 1L, Long::sum);
+                current.put(operation.id(), written);
+            }
+        }
+        incrementStatusCounts(delta);
+        if (!restoredFromArchive.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("id").in(restoredFromArchive)), ArchivedTodo.class);
+        }
+        if (!deletedInArchive.isEmpty()) {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("id").in(deletedInArchive).and(DELETED_AT).is(null)),
+                    Update.update(DELETED_AT, now), ArchivedTodo.class);
+        }
+        saveInArchive(List.copyOf(deleted.values()));
+        return Arrays.asList(results);
+    }
+
+    //Pro Runde jede id höchstens einmal: im ungeordneten bulkWrite schickt der Treiber Inserts und Updates getrennt,
+    //mehrere Operationen auf dieselbe id liefen sonst nicht in der Reihenfolge aus dem Request
+    private static List<List<Integer>> rounds(List<BulkOperation> operations, List<Integer> sent) {
+        List<List<Integer>> rounds = new ArrayList<>();
+        Map<String, Integer> lastRound = new HashMap<>();
+        for (int index : sent) {
+            int round = lastRound.merge(operations.get(index).id(), 0, (last, first) -> last + 1);
+            if (round == rounds.size()) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(round).add(index);
+        }
+        return rounds;
+    }
+
+    //Neue Startversion wie bei Todo.firstUpsertedVersion, aber nur, wenn seit dem upsert niemand geschrieben hat
+    private Todo restartVersion(Todo todo) {
+        Todo restarted = new Todo(todo.id(), todo.description(), todo.status(), Todo.firstUpsertedVersion());
+        mongoTemplate.updateFirst(byId(todo.id()).addCriteria(Criteria.where("version").is(todo.version())),
+                Update.update("version", restarted.version()), Todo.class);
+        return restarted;
+    }
+
+    @Override
+    public List<Todo> searchTodos(String text, TodoStatus status, int offset, int limit) {
+        //Bei gleichem Score nach id sortieren, damit die Seiten stabil bleiben
+        Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                .sortByScore()
+                .with(Sort.by("id"))
+                .skip(offset)
+                .limit(limit);
+        if (status != null) {
+            query.addCriteria(Criteria.where("status").is(status));
+        }
+        return mongoTemplate.find(query, Todo.class);
+    }
+
+    @Override
+    public Map<TodoStatus, Long> countByStatus() {
+        Document counters = mongoTemplate.findById(STATUS_COUNTERS_ID, Document.class, COUNTERS_COLLECTION);
+        if (counters == null || !counters.containsKey(RECONCILED_AT)) {
+            return reconcileStatusCounts();
+        }
+        return toCounts(counters);
+    }
+
+    /**
+     * Zählt neu und schreibt das Ergebnis nur, wenn sich das Zähler-Dokument seit dem Lesen nicht geändert hat
+     * (Vergleich auf alle Felder). Ein $inc während der Aggregation geht so nicht verloren, dann wird neu gezählt.
+     * Zwischen dem Schreiben eines Todos und seinem $inc bleibt ein kleines Fenster, das gleicht der nächste Lauf aus.
+     */
+    @Override
+    public Map<TodoStatus, Long> reconcileStatusCounts() {
+        Map<TodoStatus, Long> counted = new EnumMap<>(TodoStatus.class);
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            Document before = mongoTemplate.findById(STATUS_COUNTERS_ID, Document.class, COUNTERS_COLLECTION);
+            counted = countTodosByStatus();
+            if (replaceStatusCounts(before, counted)) {
+                return counted;
+            }
+        }
+        //Zu viel Betrieb, das Ergebnis stimmt trotzdem für diesen Moment. Gespeichert wird beim nächsten Versuch.
+        return counted;
+    }
+
+    private Map<TodoStatus, Long> countTodosByStatus() {
+        Map<TodoStatus, Long> counts = new EnumMap<>(TodoStatus.class);
+        for (TodoStatus status : TodoStatus.values()) {
+            counts.put(status, 0L);
+        }
+        mongoTemplate.aggregate(Aggregation.newAggregation(Aggregation.group("status").count().as("count")),
+                        Todo.class, Document.class)
+                .forEach(group -> {
+                    if (group.getString("_id") != null) {
+                        counts.put(TodoStatus.valueOf(group.getString("_id")), group.get("count", Number.class).longValue());
+                    }
+                });
+        return counts;
+    }
+
+    private boolean replaceStatusCounts(Document before, Map<TodoStatus, Long> counts) {
+        if (before == null) {
+            Document counters = new Document("_id", STATUS_COUNTERS_ID).append(RECONCILED_AT, Instant.now());
+            counts.forEach((status, count) -> counters.append(status.name(), count));
+            try {
+                mongoTemplate.insert(counters, COUNTERS_COLLECTION);
+                return true;
+            } catch (DuplicateKeyException e) {
+                //Ein $inc oder eine andere Instanz war schneller
+                return false;
+            }
+        }
+        Query unchanged = Query.query(Criteria.where("_id").is(STATUS_COUNTERS_ID));
+        Update update = Update.update(RECONCILED_AT, Instant.now());
+        for (TodoStatus status : TodoStatus.values()) {
+            unchanged.addCriteria(before.containsKey(status.name())
+                    ? Criteria.where(status.name()).is(before.get(status.name()))
+                    : Criteria.where(status.name()).exists(false));
+            update.set(status.name(), counts.get(status));
+        }
+        unchanged.addCriteria(before.containsKey(RECONCILED_AT)
+                ? Criteria.where(RECONCILED_AT).is(before.get(RECONCILED_AT))
+                : Criteria.where(RECONCILED_AT).exists(false));
+        return mongoTemplate.updateFirst(unchanged, update, COUNTERS_COLLECTION).getMatchedCount() == 1;
+    }
+
+    private static Map<TodoStatus, Long> toCounts(Document counters) {
+        Map<TodoStatus, Long> counts = new EnumMap<>(TodoStatus.class);
+        for (TodoStatus status : TodoStatus.values()) {
+            Number count = counters.get(status.name(), Number.class);
+            counts.put(status, count == null ? 0L : count.longValue());
+        }
+        return counts;
+    }
+
+    //upsert: auch vor dem ersten Zählen geht kein $inc verloren (siehe RECONCILED_AT)
+    private void incrementStatusCounts(Map<TodoStatus, Long> delta) {
+        Update update = new Update();
+        delta.forEach((status, count) -> {
+            if (status != null && count != 0) {
+                update.inc(status.name(), count);
+            }
+        });
+        if (!update.getUpdateObject().isEmpty()) {
+            mongoTemplate.upsert(Query.query(Criteria.where("_id").is(STATUS_COUNTERS_ID)), update, COUNTERS_COLLECTION);
+        }
+    }
+
+    private Map<String, Todo> findByIds(List<String> ids) {
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        return mongoTemplate.find(Query.query(Criteria.where("id").in(ids)), Todo.class).stream()
+                .filter(todo -> todo.status() != null)
+                .collect(Collectors.toMap(Todo::id, Function.identity(), (first, second) -> first, HashMap::new));
+    }
+
+    private BulkResult execute(BulkOperations bulk) {
+        try {
+            return BulkResult.of(bulk.execute(), List.of());
+        } catch (BulkOperationException e) {
+            return BulkResult.of(e.getResult(), e.getErrors());
+        }
+    }
+
+    //Fehler und per upsert neu angelegte Dokumente, jeweils nach Position im bulkWrite
+    private record BulkResult(Map<Integer, BulkWriteError> errors, Set<Integer> upserted) {
+
+        static BulkResult of(BulkWriteResult result, List<BulkWriteError> errors) {
+            return new BulkResult(
+                    errors.stream().collect(Collectors.toMap(BulkWriteError::getIndex, Function.identity())),
+                    result.getUpserts().stream().map(BulkWriteUpsert::getIndex).collect(Collectors.toSet()));
+        }
+    }
+
+    private static Query byId(String id) {
+        return Query.query(Criteria.where("id").is(id));
+    }
+}
@@ -0,0 +1,22 @@
+package de.neuefische.todobackend.repository;
+
+import de.neuefische.todobackend.model.Todo;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveCallback;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * Setzt updatedAt bei insert/save eines Todos (auch im bulkWrite), Updates über Update-Objekte setzen es
+ * in TodoRepositoryCustomImpl selbst. Das Feld gibt es nur in Mongo, nicht im Todo-Record.
+ */
+@Component
+class TodoUpdatedAtCallback implements BeforeSaveCallback<Todo> {
+
+    @Override
+    public Todo onBeforeSave(Todo todo, Document document, String collection) {
+        document.put(TodoRepositoryCustomImpl.UPDATED_AT, new Date());
+        return todo;
+    }
+}
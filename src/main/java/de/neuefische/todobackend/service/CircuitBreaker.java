@@ -0,0 +1,95 @@
+package de.neuefische.todobackend.service;
+
+import java.time.Duration;
+
+/**
+ * Einfacher Circuit Breaker für den OpenAiClient:
+ * - CLOSED: alle Aufrufe laufen durch, nach failureThreshold Fehlern in Folge -> OPEN
+ * - OPEN: alle Aufrufe werden sofort abgelehnt, nach openDuration -> HALF_OPEN
+ * - HALF_OPEN: genau ein Probe-Aufruf läuft durch, Erfolg -> CLOSED, Fehler -> wieder OPEN
+ *
+ * Jeder Zustandswechsel beginnt eine neue Generation. Ein Aufruf meldet sein Ergebnis mit der Generation aus tryAcquire,
+ * ein noch unter CLOSED gestarteter Aufruf kann so einen inzwischen offenen Breaker weder schließen noch die Probe freigeben.
+ *
+ * synchronized reicht hier, verglichen mit dem Http-Aufruf kostet das nichts.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    //Ergebnis von tryAcquire, wenn der Aufruf abgelehnt wird
+    static final long REJECTED = -1;
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeRunning;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    //REJECTED = Aufruf ablehnen. Sonst muss danach genau eine der on...-Methoden mit dem Ergebnis aufgerufen werden
+    synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return REJECTED;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeRunning) {
+                return REJECTED;
+            }
+            probeRunning = true;
+        }
+        return generation;
+    }
+
+    synchronized void onSuccess(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            transition(State.CLOSED);
+        }
+    }
+
+    synchronized void onFailure(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            transition(State.OPEN);
+            openedAt = System.nanoTime();
+        }
+    }
+
+    //Fehler, die nichts über den Zustand von OpenAI aussagen (z. B. 400 wegen eines ungültigen Requests)
+    synchronized void onIgnoredFailure(long permit) {
+        if (permit == generation) {
+            probeRunning = false;
+        }
+    }
+
+    private void transition(State next) {
+        state = next;
+        generation++;
+        probeRunning = false;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
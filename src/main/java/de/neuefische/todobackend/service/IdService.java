@@ -1,5 +1,6 @@
 package de.neuefische.todobackend.service;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.UUID;
@@ -7,7 +8,17 @@ import java.util.UUID;
 @Service
 public class IdService {
 
+    private final IdStrategy strategy;
+    private final UuidV7Generator uuidV7Generator = new UuidV7Generator();
+
+    public IdService(@Value("${todo.id.strategy:uuid-v7}") IdStrategy strategy) {
+        this.strategy = strategy;
+    }
+
     public String randomId() {
-        return UUID.randomUUID().toString();
+        return switch (strategy) {
+            case RANDOM_UUID -> UUID.randomUUID().toString();
+            case UUID_V7 -> uuidV7Generator.nextId();
+        };
     }
 }
@@ -0,0 +1,12 @@
+package de.neuefische.todobackend.service;
+
+public enum IdStrategy {
+    /**
+     * UUID v4 über SecureRandom, so wie es bis jetzt war.
+     */
+    RANDOM_UUID,
+    /**
+     * UUID v7: fängt mit einem Zeitstempel an, neue ids landen also immer am Ende des _id-Index.
+     */
+    UUID_V7
+}
@@ -0,0 +1,237 @@
+package de.neuefische.todobackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.neuefische.todobackend.dto.TodoWOId;
+import de.neuefische.todobackend.exception.IdempotencyKeyInProgressException;
+import de.neuefische.todobackend.exception.IdempotencyKeyReusedException;
+import de.neuefische.todobackend.exception.InvalidRequestException;
+import de.neuefische.todobackend.model.IdempotencyRecord;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.repository.MongoTtlIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Merkt sich die Antwort auf POST /api/todo mit Header Idempotency-Key, damit ein wiederholter Request (z. B. vom Handy
+ * bei schlechtem Netz) das Todo nicht doppelt anlegt, sondern die erste Antwort noch einmal bekommt.
+ *
+ * Wie OpenAiResponseCache in zwei Stufen (ohne Mongo nur die erste):
+ * 1. LRU im Speicher (maximale Größe + TTL), ein Treffer kostet nur einen Lookup in Caffeine
+ * 2. Mongo-Collection mit TTL-Index, damit auch nach einem Neustart oder auf anderen Instanzen nichts doppelt angelegt wird
+ *
+ * Gleichzeitige Requests mit dem gleichen Key warten auf dieser Instanz auf den ersten (SingleFlight).
+ * Über Instanzen hinweg reserviert der erste Request den Key in Mongo, die anderen bekommen 409, bis er fertig ist.
+ * Bricht eine Instanz dabei ab, darf nach pending-timeout ein anderer Request den Key übernehmen.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final Duration pendingTimeout;
+    private final Cache<String, IdempotencyRecord> memory;
+    private final SingleFlight<String, IdempotencyRecord> singleFlight;
+    private final Counter replayed;
+    private final Counter ownershipLost;
+
+    public IdempotencyStore(ObjectProvider<MongoTemplate> mongoTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${todo.idempotency.enabled:true}") boolean enabled,
+                            @Value("${todo.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${todo.idempotency.max-size:10000}") long maxSize,
+                            @Value("${todo.idempotency.pending-timeout:30s}") Duration pendingTimeout) {
+        this.mongoTemplate = mongoTemplate.getIfAvailable();
+        this.enabled = enabled;
+        this.pendingTimeout = pendingTimeout;
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "idempotency-keys");
+        Counter coalesced = Counter.builder("todo.idempotency.coalesced")
+                .description("Requests that waited for a request with the same Idempotency-Key already in flight")
+                .register(meterRegistry);
+        this.singleFlight = new SingleFlight<>(coalesced::increment);
+        this.replayed = Counter.builder("todo.idempotency.replayed")
+                .description("Requests answered with the stored response of an earlier request with the same Idempotency-Key")
+                .register(meterRegistry);
+        this.ownershipLost = Counter.builder("todo.idempotency.ownership-lost")
+                .description("Requests that finished after another request had taken over their Idempotency-Key")
+                .register(meterRegistry);
+        if (enabled) {
+            MongoTtlIndex.ensure(this.mongoTemplate, IdempotencyRecord.class, "createdAt", ttl);
+        }
+    }
+
+    /**
+     * Führt create nur aus, wenn es zu key noch keine Antwort gibt, sonst kommt die gespeicherte Antwort zurück.
+     * Ein Fehler in create wird nicht gespeichert, der Client darf es mit dem gleichen Key noch einmal versuchen.
+     */
+    public Result execute(String key, TodoWOId request, Supplier<Todo> create) {
+        if (!enabled) {
+            return new Result(create.get(), false);
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidRequestException("Idempotency-Key must not be blank or longer than " + MAX_KEY_LENGTH + " characters");
+        }
+        IdempotencyRecord remembered = memory.getIfPresent(key);
+        if (remembered != null) {
+            return replay(remembered, request);
+        }
+
+        AtomicBoolean created = new AtomicBoolean();
+        IdempotencyRecord record = singleFlight.execute(key, () -> load(key, request, () -> {
+            created.set(true);
+            return create.get();
+        }));
+        return created.get() ? new Result(record.todo(), false) : replay(record, request);
+    }
+
+    private IdempotencyRecord load(String key, TodoWOId request, Supplier<Todo> create) {
+        //Der vorherige Flight mit diesem Key kann gerade fertig geworden sein
+        IdempotencyRecord remembered = memory.getIfPresent(key);
+        if (remembered != null) {
+            return remembered;
+        }
+        Instant claimedAt = Instant.now();
+        IdempotencyRecord stored = claimInMongo(key, request, claimedAt);
+        if (stored != null) {
+            memory.put(key, stored);
+            return stored;
+        }
+
+        Todo response;
+        try {
+            response = create.get();
+        } catch (RuntimeException | Error e) {
+            releaseInMongo(key, claimedAt);
+            throw e;
+        }
+        IdempotencyRecord completed = IdempotencyRecord.pending(key, request, claimedAt).completed(response);
+        if (saveInMongo(completed)) {
+            memory.put(key, completed);
+        }
+        return completed;
+    }
+
+    private Result replay(IdempotencyRecord record, TodoWOId request) {
+        if (!record.request().equals(request)) {
+            throw reused();
+        }
+        replayed.increment();
+        return new Result(record.todo(), true);
+    }
+
+    /**
+     * @return die Antwort eines früheren Requests oder null, wenn dieser Request den Key jetzt hat
+     */
+    private IdempotencyRecord claimInMongo(String key, TodoWOId request, Instant now) {
+        if (mongoTemplate == null) {
+            return null;
+        }
+        try {
+            mongoTemplate.insert(IdempotencyRecord.pending(key, request, now));
+            return null;
+        } catch (DuplicateKeyException e) {
+            IdempotencyRecord existing = mongoTemplate.findById(key, IdempotencyRecord.class);
+            //Inzwischen abgelaufen (TTL) oder vom Besitzer nach einem Fehler freigegeben
+            if (existing == null) {
+                return null;
+            }
+            if (existing.isCompleted()) {
+                return existing;
+            }
+            if (!existing.request().equals(request)) {
+                throw reused();
+            }
+            if (takeOverInMongo(key, now)) {
+                return null;
+            }
+            throw new IdempotencyKeyInProgressException("A request with this Idempotency-Key is still in progress");
+        } catch (DataAccessException e) {
+            //Lieber ohne Schutz vor Duplikaten weitermachen als POST /api/todo scheitern lassen
+            log.warn("Could not claim idempotency key in Mongo", e);
+            return null;
+        }
+    }
+
+    private static IdempotencyKeyReusedException reused() {
+        return new IdempotencyKeyReusedException("Idempotency-Key was already used for a different request");
+    }
+
+    //Die Instanz mit dem Key hat sich seit pendingTimeout nicht gemeldet, vermutlich abgestürzt
+    private boolean takeOverInMongo(String key, Instant now) {
+        return mongoTemplate.updateFirst(
+                query(where("_id").is(key).and("response").is(null).and("createdAt").lt(now.minus(pendingTimeout))),
+                new Update().set("createdAt", now),
+                IdempotencyRecord.class).getModifiedCount() == 1;
+    }
+
+    private void releaseInMongo(String key, Instant claimedAt) {
+        if (mongoTemplate == null) {
+            return;
+        }
+        try {
+            //Nur die eigene Reservierung, nicht die eines Requests, der den Key inzwischen übernommen hat
+            mongoTemplate.remove(query(where("_id").is(key).and("response").is(null).and("createdAt").is(claimedAt)),
+                    IdempotencyRecord.class);
+        } catch (DataAccessException e) {
+            log.warn("Could not release idempotency key in Mongo", e);
+        }
+    }
+
+    /**
+     * Schreibt die Antwort nur, wenn der Key noch diesem Request gehört (gleiches createdAt wie beim Reservieren).
+     * @return false, wenn eine andere Instanz den Key nach pendingTimeout übernommen hat
+     */
+    private boolean saveInMongo(IdempotencyRecord record) {
+        if (mongoTemplate == null) {
+            return true;
+        }
+        try {
+            //upsert: ist der Eintrag inzwischen abgelaufen (TTL) oder konnte er nicht reserviert werden, wird er angelegt
+            mongoTemplate.upsert(
+                    query(where("_id").is(record.key()).and("response").is(null).and("createdAt").is(record.createdAt())),
+                    new Update().set("response", record.response()).setOnInsert("request", record.request()),
+                    IdempotencyRecord.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            ownershipLost.increment();
+            log.warn("Idempotency key {} was taken over by another request, the todo {} is not replayed",
+                    record.key(), record.todo().id());
+            return false;
+        } catch (DataAccessException e) {
+            log.warn("Could not write idempotency key to Mongo", e);
+            return true;
+        }
+    }
+
+    /**
+     * @param replayed true, wenn todo die gespeicherte Antwort eines früheren Requests ist
+     */
+    public record Result(Todo todo, boolean replayed) {
+    }
+}
@@ -0,0 +1,437 @@
+package de.neuefische.todobackend.service;
+
+import de.neuefische.todobackend.dto.BulkItemResult;
+import de.neuefische.todobackend.dto.BulkOperation;
+import de.neuefische.todobackend.dto.BulkOperationType;
+import de.neuefische.todobackend.dto.TodoEvent;
+import de.neuefische.todobackend.dto.TodoGenerationRequest;
+import de.neuefische.todobackend.dto.TodoPage;
+import de.neuefische.todobackend.dto.TodoWOId;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import de.neuefische.todobackend.model.openAi.OpenAiRequest;
+import de.neuefische.todobackend.repository.TodoJournal;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Hält alle Todos im Speicher, für Installationen ohne Mongo oder wenn GET /api/todo/{id} so schnell wie möglich sein soll.
+ * Aktiv mit todo.service=memory (siehe application-memory.properties).
+ *
+ * - Lesen ist lock-frei: ConcurrentHashMap für die Todos, sortierte Sets der ids für das Keyset-Paging (gesamt und pro Status)
+ * - Schreiben läuft unter einem Lock, jede Änderung geht zuerst ins Journal (TodoJournal) und dann in die Map
+ * - Beim Start wird das Journal wieder eingelesen, im Hintergrund wird es regelmäßig auf die Platte geschrieben und kompaktiert
+ *
+ * Die Suche ist ein einfacher Scan über alle Todos (Treffer pro Suchwort), ohne Stemming wie beim Text-Index von Mongo.
+ */
+@Service
+@ConditionalOnProperty(name = "todo.service", havingValue = "memory")
+public class InMemoryTodoService implements TdService {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryTodoService.class);
+
+    private final IdService idService;
+    private final OpenAiClient openAiClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean streamGeneration;
+
+    private final Map<String, Todo> todos = new ConcurrentHashMap<>();
+    private final NavigableSet<String> ids = new ConcurrentSkipListSet<>();
+    private final Map<TodoStatus, NavigableSet<String>> idsByStatus = new EnumMap<>(TodoStatus.class);
+    private final Map<TodoStatus, AtomicLong> counts = new EnumMap<>(TodoStatus.class);
+
+    //Alle Änderungen nacheinander, damit Journal und Map in der gleichen Reihenfolge geschrieben werden
+    private final ReentrantLock writeLock = new ReentrantLock();
+    //null wenn todo.journal.enabled=false, dann ist nach einem Neustart alles weg
+    private final TodoJournal journal;
+    private final long compactionThreshold;
+    private final ScheduledExecutorService background = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("todo-journal").daemon().factory());
+
+    public InMemoryTodoService(IdService idService,
+                               OpenAiClient openAiClient,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${todo.generation.stream:true}") boolean streamGeneration,
+                               @Value("${todo.journal.enabled:true}") boolean journalEnabled,
+                               @Value("${todo.journal.directory:data/journal}") Path journalDirectory,
+                               @Value("${todo.journal.segment-size:64MB}") DataSize segmentSize,
+                               @Value("${todo.journal.compaction-threshold:100000}") long compactionThreshold,
+                               @Value("${todo.journal.flush-interval:1s}") Duration flushInterval,
+                               @Value("${todo.journal.compaction-check-interval:30s}") Duration compactionCheckInterval) {
+        this.idService = idService;
+        this.openAiClient = openAiClient;
+        this.eventPublisher = eventPublisher;
+        this.streamGeneration = streamGeneration;
+        this.compactionThreshold = compactionThreshold;
+        for (TodoStatus status : TodoStatus.values()) {
+            idsByStatus.put(status, new ConcurrentSkipListSet<>());
+            counts.put(status, new AtomicLong());
+        }
+        if (!journalEnabled) {
+            this.journal = null;
+            return;
+        }
+
+        this.journal = new TodoJournal(journalDirectory, (int) segmentSize.toBytes());
+        long start = System.nanoTime();
+        journal.replay().values().forEach(todo -> {
+            todos.put(todo.id(), todo);
+            index(null, todo);
+        });
+        log.info("Replayed {} todos from {} in {} ms", todos.size(), journalDirectory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        //Bis zum force() liegen die Änderungen nur im Page-Cache, ein Absturz der JVM verliert nichts, ein Stromausfall schon
+        background.scheduleWithFixedDelay(this::flush,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        background.scheduleWithFixedDelay(this::compactIfNeeded,
+                compactionCheckInterval.toMillis(), compactionCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public List<Todo> findAllTodos() {
+        return ids.stream()
+                .map(todos::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public TodoPage findTodosAfter(TodoStatus status, String after, int limit) {
+        NavigableSet<String> index = status == null ? ids : idsByStatus.get(status);
+        NavigableSet<String> remaining = after == null ? index : index.tailSet(after, false);
+
+        List<Todo> page = new ArrayList<>(limit + 1);
+        for (String id : remaining) {
+            Todo todo = todos.get(id);
+            //Die Indizes werden nach der Map angepasst, ein gerade geänderter Status kann hier also noch falsch einsortiert sein
+            if (todo != null && (status == null || todo.status() == status)) {
+                page.add(todo);
+                if (page.size() > limit) {
+                    break;
+                }
+            }
+        }
+        return TodoPage.of(page, limit);
+    }
+
+    public TodoPage searchTodos(String query, TodoStatus status, String after, int limit) {
+        int offset = TodoPage.parseOffset(after);
+        List<String> terms = terms(query);
+
+        List<Todo> todosFound = todos.values().stream()
+                .filter(todo -> status == null || todo.status() == status)
+                .map(todo -> new SearchHit(todo, score(todo, terms)))
+                .filter(hit -> hit.score() > 0)
+                .sorted(Comparator.comparingInt(SearchHit::score).reversed()
+                        .thenComparing(hit -> hit.todo().id()))
+                .skip(offset)
+                .limit(limit + 1L)
+                .map(SearchHit::todo)
+                .toList();
+
+        return TodoPage.ofOffset(todosFound, offset, limit);
+    }
+
+    public Stream<Todo> streamAllTodos() {
+        return ids.stream()
+                .map(todos::get)
+                .filter(Objects::nonNull);
+    }
+
+    public Todo addTodo(TodoWOId todoWOId) {
+        Todo todo = new Todo(idService.randomId(), todoWOId.description(), todoWOId.status(), 0L);
+
+        writeLock.lock();
+        try {
+            write(todo);
+        } finally {
+            writeLock.unlock();
+        }
+        eventPublisher.publishEvent(TodoEvent.created(todo));
+        return todo;
+    }
+
+    public Todo updateTodo(TodoWOId todo, String id, List<Long> expectedVersions) {
+        Todo updated;
+        writeLock.lock();
+        try {
+            Todo previous = todos.get(id);
+            if (expectedVersions != null && (previous == null || !expectedVersions.contains(versionOf(previous)))) {
+                throw new OptimisticLockingFailureException("Todo with id: " + id + " was modified or deleted in the meantime");
+            }
+            //Wie das Upsert bei Mongo: unbekannte ids werden angelegt
+            updated = new Todo(id, todo.description(), todo.status(),
+                    previous == null ? Todo.firstUpsertedVersion() : versionOf(previous) + 1);
+            write(updated);
+        } finally {
+            writeLock.unlock();
+        }
+        eventPublisher.publishEvent(TodoEvent.updated(updated));
+        return updated;
+    }
+
+    public Todo findTodoById(String id) {
+        Todo todo = todos.get(id);
+        if (todo == null) {
+            throw new NoSuchElementException("Todo with id: " + id + " not found!");
+        }
+        return todo;
+    }
+
+    public void deleteTodo(String id) {
+        boolean removed;
+        writeLock.lock();
+        try {
+            removed = remove(id);
+        } finally {
+            writeLock.unlock();
+        }
+        if (removed) {
+            eventPublisher.publishEvent(TodoEvent.deleted(id));
+        }
+    }
+
+    public List<BulkItemResult> applyBulk(List<BulkOperation> operations) {
+        List<BulkItemResult> results = new ArrayList<>(operations.size());
+        List<TodoEvent> events = new ArrayList<>();
+
+        writeLock.lock();
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                BulkOperation operation = operations.get(i);
+                if (operation == null) {
+                    results.add(new BulkItemResult(i, null, null, 400, "operation must not be null"));
+                    continue;
+                }
+                if (operation.type() == BulkOperationType.CREATE) {
+                    operation = operation.withId(idService.randomId());
+                }
+                String invalid = operation.validationError();
+                if (invalid != null) {
+                    results.add(BulkItemResult.failed(i, operation, 400, invalid));
+                    continue;
+                }
+                Todo previous = todos.get(operation.id());
+                Todo written = null;
+                switch (operation.type()) {
+                    case CREATE -> {
+                        if (previous != null) {
+                            results.add(BulkItemResult.failed(i, operation, 409, "duplicate id " + operation.id()));
+                            continue;
+                        }
+                        written = new Todo(operation.id(), operation.todo().description(), operation.todo().status(), 0L);
+                        write(written);
+                    }
+                    case UPDATE -> {
+                        written = new Todo(operation.id(), operation.todo().description(), operation.todo().status(),
+                                previous == null ? Todo.firstUpsertedVersion() : versionOf(previous) + 1);
+                        write(written);
+                    }
+                    case DELETE -> {
+                        //Wie deleteTodo: ohne gelöschtes Todo auch kein Event
+                        if (!remove(operation.id())) {
+                            results.add(BulkItemResult.ok(i, operation));
+                            continue;
+                        }
+                    }
+                }
+                results.add(BulkItemResult.ok(i, operation));
+                events.add(TodoEvent.of(operation, written));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        events.forEach(eventPublisher::publishEvent);
+        return results;
+    }
+
+    public Map<TodoStatus, Long> getStatusCounts() {
+        Map<TodoStatus, Long> result = new EnumMap<>(TodoStatus.class);
+        counts.forEach((status, count) -> result.put(status, count.get()));
+        return result;
+    }
+
+    public List<Todo> generateStackOfTodos(TodoGenerationRequest generationRequest, Consumer<Todo> onCreated) {
+        OpenAiRequest request = new OpenAiRequest("Generiere mir eine Liste mit " + generationRequest.count()
+                + " todos für das Thema: " + generationRequest.topic());
+        if (streamGeneration) {
+            List<Todo> created = new ArrayList<>();
+            TodoListParser.Incremental parser = TodoListParser.incremental(generationRequest.count(), description -> {
+                Todo todo = addTodo(new TodoWOId(description, TodoStatus.OPEN));
+                created.add(todo);
+                onCreated.accept(todo);
+            });
+            openAiClient.chatStream(request, generationRequest.bypassCache(), parser);
+            parser.finish();
+            return created;
+        }
+
+        String response = openAiClient.chat(request, generationRequest.bypassCache())
+                .getAnswer();
+
+        List<Todo> generated = TodoListParser.parse(response, generationRequest.count()).stream()
+                .map(description -> new Todo(idService.randomId(), description, TodoStatus.OPEN, 0L))
+                .toList();
+        writeLock.lock();
+        try {
+            generated.forEach(this::write);
+        } finally {
+            writeLock.unlock();
+        }
+        generated.forEach(todo -> {
+            eventPublisher.publishEvent(TodoEvent.created(todo));
+            onCreated.accept(todo);
+        });
+        return generated;
+    }
+
+    /**
+     * Schreibt einen Snapshot aller Todos und beginnt ein neues Journal, danach werden die alten Dateien gelöscht.
+     * Nur der Wechsel auf das neue Journal und das Kopieren der Todos blockieren Schreibzugriffe, nicht das Schreiben des Snapshots.
+     */
+    public void compact() {
+        if (journal == null) {
+            return;
+        }
+        long generation;
+        List<Todo> snapshot;
+        writeLock.lock();
+        try {
+            generation = journal.rollover();
+            snapshot = List.copyOf(todos.values());
+        } finally {
+            writeLock.unlock();
+        }
+        journal.writeSnapshot(generation, snapshot);
+        log.info("Compacted todo journal to {} todos (generation {})", snapshot.size(), generation);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        background.shutdownNow();
+        if (journal == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Could not close todo journal", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //Nur mit writeLock aufrufen
+    private void write(Todo todo) {
+        if (journal != null) {
+            journal.appendPut(todo);
+        }
+        index(todos.put(todo.id(), todo), todo);
+    }
+
+    //Nur mit writeLock aufrufen
+    private boolean remove(String id) {
+        Todo previous = todos.get(id);
+        if (previous == null) {
+            return false;
+        }
+        if (journal != null) {
+            journal.appendDelete(id);
+        }
+        todos.remove(id);
+        ids.remove(id);
+        if (previous.status() != null) {
+            idsByStatus.get(previous.status()).remove(id);
+            counts.get(previous.status()).decrementAndGet();
+        }
+        return true;
+    }
+
+    private void index(Todo previous, Todo todo) {
+        ids.add(todo.id());
+        if (previous != null && previous.status() != null && previous.status() != todo.status()) {
+            idsByStatus.get(previous.status()).remove(previous.id());
+            counts.get(previous.status()).decrementAndGet();
+        }
+        if (todo.status() != null && (previous == null || previous.status() != todo.status())) {
+            idsByStatus.get(todo.status()).add(todo.id());
+            counts.get(todo.status()).incrementAndGet();
+        }
+    }
+
+    private void flush() {
+        try {
+            journal.force();
+        } catch (RuntimeException e) {
+            log.warn("Could not flush todo journal", e);
+        }
+    }
+
+    private void compactIfNeeded() {
+        try {
+            //Erst wenn das Journal deutlich mehr Records hat als es Todos gibt, lohnt sich ein neuer Snapshot
+            if (journal.recordsSinceSnapshot() >= Math.max(compactionThreshold, todos.size())) {
+                compact();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not compact todo journal", e);
+        }
+    }
+
+    private static long versionOf(Todo todo) {
+        return todo.version() == null ? 0 : todo.version();
+    }
+
+    private static List<String> terms(String query) {
+        return Stream.of(query.toLowerCase(Locale.GERMAN).split("\\P{L}+"))
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    private static int score(Todo todo, List<String> terms) {
+        if (todo.description() == null) {
+            return 0;
+        }
+        String description = todo.description().toLowerCase(Locale.GERMAN);
+        int score = 0;
+        for (String term : terms) {
+            for (int at = description.indexOf(term); at >= 0; at = description.indexOf(term, at + term.length())) {
+                score++;
+            }
+        }
+        return score;
+    }
+
+    private record SearchHit(Todo todo, int score) {
+    }
+}
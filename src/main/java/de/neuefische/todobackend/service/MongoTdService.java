@@ -0,0 +1,112 @@
+package de.neuefische.todobackend.service;
+
+import de.neuefische.todobackend.cache.CacheConfig;
+import de.neuefische.todobackend.dto.BulkItemResult;
+import de.neuefische.todobackend.dto.BulkOperation;
+import de.neuefische.todobackend.dto.BulkOperationType;
+import de.neuefische.todobackend.dto.TodoEvent;
+import de.neuefische.todobackend.dto.TodoPage;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import de.neuefische.todobackend.repository.TodoRepository;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+//Was TodoService und TodoServiceWithRestClient gleich machen: Seiten lesen (auch mit includeArchived aus todo und todo_archive), Suche und Bulk
+abstract class MongoTdService implements TdService {
+
+    protected final TodoRepository todoRepository;
+    protected final IdService idService;
+    //Jede Änderung wird als TodoEvent veröffentlicht, daraus werden die Server-Sent Events (siehe event-Package)
+    protected final ApplicationEventPublisher eventPublisher;
+
+    MongoTdService(TodoRepository todoRepository, IdService idService, ApplicationEventPublisher eventPublisher) {
+        this.todoRepository = todoRepository;
+        this.idService = idService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public List<Todo> findAllTodos(boolean includeArchived) {
+        return includeArchived ? todoRepository.findAllIncludingArchived() : findAllTodos();
+    }
+
+    @Override
+    public TodoPage findTodosAfter(TodoStatus status, String after, int limit) {
+        Limit fetchLimit = Limit.of(limit + 1);
+        List<Todo> todos;
+        if (status == null) {
+            todos = after == null
+                    ? todoRepository.findAllByOrderByIdAsc(fetchLimit)
+                    : todoRepository.findByIdGreaterThanOrderByIdAsc(after, fetchLimit);
+        } else {
+            todos = after == null
+                    ? todoRepository.findByStatusOrderByIdAsc(status, fetchLimit)
+                    : todoRepository.findByStatusAndIdGreaterThanOrderByIdAsc(status, after, fetchLimit);
+        }
+
+        return TodoPage.of(todos, limit);
+    }
+
+    @Override
+    public TodoPage findTodosAfter(TodoStatus status, String after, int limit, boolean includeArchived) {
+        if (!includeArchived) {
+            return findTodosAfter(status, after, limit);
+        }
+        return TodoPage.of(todoRepository.findTodosAfterIncludingArchived(status, after, limit + 1), limit);
+    }
+
+    @Override
+    public TodoPage searchTodos(String query, TodoStatus status, String after, int limit) {
+        int offset = TodoPage.parseOffset(after);
+        List<Todo> todos = todoRepository.searchTodos(query, status, offset, limit + 1);
+
+        return TodoPage.ofOffset(todos, offset, limit);
+    }
+
+    //Am Cache vorbei, der kennt nur die aktiven Todos
+    @Override
+    public Todo findTodoById(String id, boolean includeArchived) {
+        if (!includeArchived) {
+            return findTodoById(id);
+        }
+        return todoRepository.findById(id)
+                .or(() -> todoRepository.findArchivedById(id))
+                .orElseThrow(() -> new NoSuchElementException("Todo with id: " + id + " not found!"));
+    }
+
+    //Welche Einträge ein Bulk betrifft ist erst nach dem Ausführen klar, daher den ganzen Cache leeren
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.TODOS, allEntries = true)
+    public List<BulkItemResult> applyBulk(List<BulkOperation> operations) {
+        List<BulkOperation> withIds = operations.stream()
+                .map(operation -> operation != null && operation.type() == BulkOperationType.CREATE
+                        ? operation.withId(idService.randomId())
+                        : operation)
+                .toList();
+
+        List<BulkItemResult> results = todoRepository.bulkWrite(withIds);
+        List<BulkOperation> succeeded = results.stream()
+                .filter(result -> result.status() == 200)
+                .map(result -> withIds.get(result.index()))
+                .toList();
+        //Events mit dem gespeicherten Stand (Version usw.) wie bei einzelnen Änderungen, nicht mit dem aus dem Request.
+        //Ein Todo, das schon wieder gelöscht ist (spätere Operation im selben Request), bekommt nur sein DELETED.
+        Map<String, Todo> written = todoRepository.findAllById(succeeded.stream()
+                        .filter(operation -> operation.type() != BulkOperationType.DELETE)
+                        .map(BulkOperation::id)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Todo::id, Function.identity()));
+        succeeded.stream()
+                .filter(operation -> operation.type() == BulkOperationType.DELETE || written.containsKey(operation.id()))
+                .forEach(operation -> eventPublisher.publishEvent(TodoEvent.of(operation, written.get(operation.id()))));
+        return results;
+    }
+}
@@ -0,0 +1,358 @@
+package de.neuefische.todobackend.service;
+
+import de.neuefische.todobackend.cache.OpenAiResponseCache;
+import de.neuefische.todobackend.exception.OpenAiUnavailableException;
+import de.neuefische.todobackend.model.openAi.OpenAiChoice;
+import de.neuefische.todobackend.model.openAi.OpenAiMessage;
+import de.neuefische.todobackend.model.openAi.OpenAiRequest;
+import de.neuefische.todobackend.model.openAi.OpenAiResponse;
+import de.neuefische.todobackend.model.openAi.OpenAiStreamChunk;
+import de.neuefische.todobackend.model.openAi.OpenAiUsage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Kapselt alle Aufrufe an die OpenAI-API, damit die Services sich nicht um Http, Cache usw. kümmern müssen.
+ *
+ * Metriken (nur für echte Aufrufe, nicht für Antworten aus dem Cache):
+ * openai.requests (Timer, outcome=success|error), openai.tokens (type=prompt|completion), openai.errors (exception).
+ * Der RestClient kommt aus dem Builder von Spring Boot und erzeugt zusätzlich http.client.requests.
+ *
+ * Schutz vor einem langsamen oder ausgefallenen OpenAI:
+ * - Apache HttpClient mit Connection-Pool und Timeouts (openai.http.*), der Pool ist so groß wie der Bulkhead
+ * - Bulkhead: höchstens openai.bulkhead.max-concurrent-calls Aufrufe gleichzeitig, weitere warten max-wait und bekommen dann 503
+ * - Circuit Breaker: nach mehreren Fehlern in Folge (Timeout, 5xx, 429) wird eine Zeit lang gar nicht mehr angefragt (503)
+ * Dazu kommen openai.rejected (reason=bulkhead|circuit-open), openai.bulkhead.in-flight und openai.circuit.state (0 closed, 1 half-open, 2 open).
+ *
+ * Single-Flight: gleiche Requests, die gleichzeitig kommen (z. B. viele Nutzer öffnen die App und rufen /initialize auf),
+ * teilen sich einen Aufruf an OpenAI. Die Wartenden zählt openai.coalesced, openai.single-flight.in-flight die laufenden Aufrufe.
+ */
+@Service
+public class OpenAiClient {
+
+    private final RestClient client;
+    private final CloseableHttpClient httpClient;
+    private final OpenAiResponseCache responseCache;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    private final int maxConcurrentCalls;
+    private final Semaphore bulkhead;
+    private final long bulkheadMaxWaitNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final SingleFlight<Flight, OpenAiResponse> singleFlight;
+
+    //bypassCache gehört zum Key: wer ausdrücklich neu anfragen will, soll keine Antwort aus dem Cache bekommen
+    private record Flight(OpenAiRequest request, boolean bypassCache) {
+    }
+
+    //Markiert Exceptions aus dem Consumer von chatStream, damit sie nicht mit Fehlern von OpenAI verwechselt werden
+    private static final class ContentConsumerException extends RuntimeException {
+
+        private ContentConsumerException(RuntimeException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized RuntimeException getCause() {
+            return (RuntimeException) super.getCause();
+        }
+    }
+
+    public OpenAiClient(OpenAiResponseCache responseCache,
+                        RestClient.Builder restClientBuilder,
+                        MeterRegistry meterRegistry,
+                        ObjectMapper objectMapper,
+                        @Value("${BASE_URL}") String baseUrl,
+                        @Value("${API_KEY}") String authKey,
+                        @Value("${openai.http.connect-timeout:5s}") Duration connectTimeout,
+                        @Value("${openai.http.read-timeout:60s}") Duration readTimeout,
+                        @Value("${openai.bulkhead.max-concurrent-calls:10}") int maxConcurrentCalls,
+                        @Value("${openai.bulkhead.max-wait:500ms}") Duration bulkheadMaxWait,
+                        @Value("${openai.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                        @Value("${openai.circuit-breaker.open-duration:30s}") Duration openDuration) {
+        this.responseCache = responseCache;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.bulkhead = new Semaphore(maxConcurrentCalls, true);
+        this.bulkheadMaxWaitNanos = bulkheadMaxWait.toNanos();
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDuration);
+        Counter coalesced = Counter.builder("openai.coalesced")
+                .description("Calls that waited for an identical call already in flight instead of asking OpenAI")
+                .register(meterRegistry);
+        this.singleFlight = new SingleFlight<>(coalesced::increment);
+        this.httpClient = httpClient(maxConcurrentCalls, connectTimeout, readTimeout);
+        this.client = restClientBuilder
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(httpClient))
+                .defaultHeader("Authorization", "Bearer "+authKey)
+                .baseUrl(baseUrl)
+                .build();
+
+        Gauge.builder("openai.bulkhead.in-flight", bulkhead, permits -> maxConcurrentCalls - permits.availablePermits())
+                .description("OpenAI calls currently in flight")
+                .register(meterRegistry);
+        Gauge.builder("openai.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("0 = closed, 1 = half-open, 2 = open")
+                .register(meterRegistry);
+        Gauge.builder("openai.single-flight.in-flight", singleFlight, SingleFlight::inFlight)
+                .description("Distinct OpenAI requests currently in flight")
+                .register(meterRegistry);
+    }
+
+    //Mehr Verbindungen als der Bulkhead Aufrufe erlaubt werden nie gebraucht
+    private static CloseableHttpClient httpClient(int maxConnections, Duration connectTimeout, Duration readTimeout) {
+        return HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.of(connectTimeout))
+                                .setSocketTimeout(Timeout.of(readTimeout))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                //Ein Request an OpenAI kostet Geld, wiederholt wird nur bewusst (z. B. über den Job)
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    public OpenAiResponse chat(OpenAiRequest request) {
+        return chat(request, false);
+    }
+
+    /**
+     * @param bypassCache true -> immer bei OpenAI anfragen (die Antwort landet trotzdem im Cache)
+     */
+    public OpenAiResponse chat(OpenAiRequest request, boolean bypassCache) {
+        return singleFlight.execute(new Flight(request, bypassCache), () -> cached(request, bypassCache,
+                () -> send(request, () -> client.post()
+                        .body(request)
+                        .retrieve()
+                        .body(OpenAiResponse.class))));
+    }
+
+    /**
+     * Wie chat(), aber mit "stream": true: onContent bekommt die Antwort Stück für Stück, sobald OpenAI sie schickt.
+     * Kommt die Antwort aus dem Cache oder von einem gleichen Aufruf, der schon lief, gibt es genau ein Stück mit der ganzen Antwort.
+     * onContent läuft, während die Verbindung zu OpenAI offen ist (und damit im Bulkhead), es sollte also schnell sein.
+     * Wirft onContent, bricht der Stream ab und die Exception kommt unverändert hier heraus, für den Circuit Breaker
+     * und openai.errors zählt das nicht als Fehler von OpenAI.
+     */
+    public OpenAiResponse chatStream(OpenAiRequest request, boolean bypassCache, Consumer<String> onContent) {
+        AtomicBoolean streamed = new AtomicBoolean();
+        OpenAiResponse response;
+        try {
+            response = singleFlight.execute(new Flight(request, bypassCache), () -> cached(request, bypassCache, () -> {
+                streamed.set(true);
+                return send(request, () -> stream(request.streaming(), onContent));
+            }));
+        } catch (ContentConsumerException e) {
+            throw e.getCause();
+        }
+        if (!streamed.get()) {
+            onContent.accept(response.getAnswer());
+        }
+        return response;
+    }
+
+    private OpenAiResponse cached(OpenAiRequest request, boolean bypassCache, Supplier<OpenAiResponse> loader) {
+        if (!responseCache.isCacheable(request)) {
+            return loader.get();
+        }
+        if (bypassCache) {
+            return responseCache.refresh(request, loader);
+        }
+        return responseCache.get(request, loader);
+    }
+
+    private OpenAiResponse send(OpenAiRequest request, Supplier<OpenAiResponse> call) {
+        acquireBulkhead();
+        try {
+            long permit = circuitBreaker.tryAcquire();
+            if (permit == CircuitBreaker.REJECTED) {
+                meterRegistry.counter("openai.rejected", "reason", "circuit-open").increment();
+                throw new OpenAiUnavailableException("OpenAI is currently unavailable, please try again later");
+            }
+            return sendGuarded(request, call, permit);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private void acquireBulkhead() {
+        try {
+            if (bulkhead.tryAcquire(bulkheadMaxWaitNanos, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        meterRegistry.counter("openai.rejected", "reason", "bulkhead").increment();
+        throw new OpenAiUnavailableException("Too many concurrent OpenAI requests (max " + maxConcurrentCalls + "), please try again later");
+    }
+
+    private OpenAiResponse sendGuarded(OpenAiRequest request, Supplier<OpenAiResponse> call, long permit) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            OpenAiResponse response = call.get();
+            circuitBreaker.onSuccess(permit);
+            recordUsage(request, response);
+            outcome = "success";
+            return response;
+        } catch (ContentConsumerException e) {
+            //OpenAI hat geantwortet, nur die Verarbeitung bei uns (z. B. Speichern in Mongo) ist fehlgeschlagen
+            circuitBreaker.onIgnoredFailure(permit);
+            outcome = "aborted";
+            throw e;
+        } catch (RuntimeException | Error e) {
+            //Auch ein Error (z. B. OutOfMemoryError) muss den Probe-Aufruf freigeben, sonst bleibt der Breaker für immer offen
+            if (e instanceof RuntimeException exception && isUpstreamFailure(exception)) {
+                circuitBreaker.onFailure(permit);
+            } else {
+                circuitBreaker.onIgnoredFailure(permit);
+            }
+            meterRegistry.counter("openai.errors", "exception", e.getClass().getSimpleName()).increment();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("openai.requests")
+                    .description("Calls to the OpenAI chat completions API")
+                    .tag("model", String.valueOf(request.getModel()))
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private OpenAiResponse stream(OpenAiRequest request, Consumer<String> consumer) {
+        Consumer<String> onContent = content -> {
+            try {
+                consumer.accept(content);
+            } catch (RuntimeException e) {
+                throw new ContentConsumerException(e);
+            }
+        };
+        return client.post()
+                .accept(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_JSON)
+                .body(request)
+                .exchange((clientRequest, clientResponse) -> {
+                    if (clientResponse.getStatusCode().isError()) {
+                        throw statusException(clientResponse);
+                    }
+                    //Ohne Streaming (z. B. hinter einem Proxy oder in den Tests) kommt die ganze Antwort auf einmal als Json
+                    MediaType contentType = clientResponse.getHeaders().getContentType();
+                    if (contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+                        OpenAiResponse response = objectMapper.readValue(clientResponse.getBody(), OpenAiResponse.class);
+                        onContent.accept(response.getAnswer());
+                        return response;
+                    }
+                    return readEvents(clientResponse.getBody(), onContent);
+                });
+    }
+
+    //Server-Sent Events: pro Stück eine Zeile "data: {...}" und eine Leerzeile, am Ende "data: [DONE]"
+    private OpenAiResponse readEvents(InputStream body, Consumer<String> onContent) throws IOException {
+        StringBuilder answer = new StringBuilder();
+        String id = null;
+        OpenAiUsage usage = null;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            String data = line.substring(5).strip();
+            if (data.equals("[DONE]")) {
+                break;
+            }
+            OpenAiStreamChunk chunk = objectMapper.readValue(data, OpenAiStreamChunk.class);
+            if (chunk.getId() != null) {
+                id = chunk.getId();
+            }
+            if (chunk.getUsage() != null) {
+                usage = chunk.getUsage();
+            }
+            String content = chunk.getContent();
+            if (content != null && !content.isEmpty()) {
+                answer.append(content);
+                onContent.accept(content);
+            }
+        }
+        return new OpenAiResponse(id, List.of(new OpenAiChoice(new OpenAiMessage("assistant", answer.toString()))), usage);
+    }
+
+    //Bei exchange() wirft der RestClient bei 4xx/5xx nicht selbst, die Exceptions sollen aber die gleichen sein wie bei retrieve()
+    private static HttpStatusCodeException statusException(ClientHttpResponse response) throws IOException {
+        HttpStatusCode status = response.getStatusCode();
+        byte[] body = response.getBody().readAllBytes();
+        if (status.is4xxClientError()) {
+            return HttpClientErrorException.create(status, response.getStatusText(), response.getHeaders(), body, StandardCharsets.UTF_8);
+        }
+        return HttpServerErrorException.create(status, response.getStatusText(), response.getHeaders(), body, StandardCharsets.UTF_8);
+    }
+
+    //Timeouts, Verbindungsfehler, 5xx und 429 sprechen für ein Problem bei OpenAI, andere 4xx für einen Fehler bei uns
+    private static boolean isUpstreamFailure(RuntimeException e) {
+        if (e instanceof ResourceAccessException) {
+            return true;
+        }
+        if (e instanceof HttpStatusCodeException statusException) {
+            return statusException.getStatusCode().is5xxServerError() || statusException.getStatusCode().value() == 429;
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    private void recordUsage(OpenAiRequest request, OpenAiResponse response) {
+        OpenAiUsage usage = response == null ? null : response.getUsage();
+        if (usage == null) {
+            return;
+        }
+        String model = String.valueOf(request.getModel());
+        meterRegistry.counter("openai.tokens", "model", model, "type", "prompt").increment(usage.getPromptTokens());
+        meterRegistry.counter("openai.tokens", "model", model, "type", "completion").increment(usage.getCompletionTokens());
+    }
+}
@@ -0,0 +1,214 @@
+package de.neuefische.todobackend.service;
+
+import de.neuefische.todobackend.cache.CacheConfig;
+import de.neuefische.todobackend.dto.TodoEvent;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.openAi.OpenAiRequest;
+import de.neuefische.todobackend.repository.TodoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prüft die Schreibweise neuer Todos im Hintergrund, damit POST /api/todo nicht auf OpenAI warten muss.
+ *
+ * addTodo legt das Todo nur in eine begrenzte Queue. Ein Worker sammelt bis zu batch-size Todos
+ * (oder was innerhalb von flush-interval zusammenkommt), fragt OpenAI einmal für alle und schreibt
+ * die Korrekturen mit einem bulkWrite zurück. Geändert wird nur, wenn das Todo noch die Version von vorher hat,
+ * eine Änderung durch den Nutzer in der Zwischenzeit gewinnt also.
+ *
+ * Ist die Queue voll, wartet addTodo höchstens offer-timeout und lässt die Prüfung dann weg (todo.spell-check.dropped).
+ * Was beim Herunterfahren noch in der Queue liegt, wird nicht mehr geprüft.
+ */
+@Service
+@ConditionalOnProperty(name = "todo.service", havingValue = "openai", matchIfMissing = true)
+public class SpellCheckPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(SpellCheckPipeline.class);
+
+    //"3. Fenster putzen" -> 3 und "Fenster putzen"
+    private static final Pattern NUMBERED_LINE = Pattern.compile("^\\s*(\\d{1,4})\\s*[.):]\\s*(.*)$");
+
+    private final TodoRepository todoRepository;
+    private final OpenAiClient openAiClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache todoCache;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final BlockingQueue<Todo> queue;
+    private final Thread worker;
+
+    private final Counter dropped;
+    private final Counter corrected;
+    private final Counter failed;
+    private final Timer batches;
+
+    public SpellCheckPipeline(TodoRepository todoRepository,
+                              OpenAiClient openAiClient,
+                              ApplicationEventPublisher eventPublisher,
+                              CacheManager cacheManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${todo.spell-check.enabled:false}") boolean enabled,
+                              @Value("${todo.spell-check.batch-size:20}") int batchSize,
+                              @Value("${todo.spell-check.flush-interval:2s}") Duration flushInterval,
+                              @Value("${todo.spell-check.queue-capacity:1000}") int queueCapacity,
+                              @Value("${todo.spell-check.offer-timeout:0ms}") Duration offerTimeout) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("todo.spell-check.batch-size must be greater than 0");
+        }
+        this.todoRepository = todoRepository;
+        this.openAiClient = openAiClient;
+        this.eventPublisher = eventPublisher;
+        this.todoCache = cacheManager.getCache(CacheConfig.TODOS);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("todo.spell-check.queued", queue, BlockingQueue::size)
+                .description("Todos waiting for the spell check")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("todo.spell-check.dropped")
+                .description("Todos not spell checked because the queue was full")
+                .register(meterRegistry);
+        this.corrected = Counter.builder("todo.spell-check.corrected")
+                .description("Todos whose description was corrected")
+                .register(meterRegistry);
+        this.failed = Counter.builder("todo.spell-check.failed")
+                .description("Batches that could not be checked")
+                .register(meterRegistry);
+        this.batches = Timer.builder("todo.spell-check.batches")
+                .description("One OpenAI request plus bulk update per batch")
+                .register(meterRegistry);
+
+        this.worker = enabled
+                ? Thread.ofPlatform().name("todo-spell-check").daemon().start(this::work)
+                : null;
+    }
+
+    /**
+     * Blockiert höchstens offer-timeout, false wenn das Todo nicht geprüft wird (auch ohne description).
+     */
+    public boolean submit(Todo todo) {
+        if (!enabled || todo.description() == null || todo.description().isBlank()) {
+            return false;
+        }
+        try {
+            if (queue.offer(todo, offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void work() {
+        List<Todo> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                collect(batch);
+                batches.record(() -> check(batch));
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                //Die Todos bleiben wie geschrieben, die Prüfung ist nur ein Extra
+                log.warn("Spell check of {} todos failed", batch.size(), e);
+                failed.increment();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    //Wartet auf das erste Todo und sammelt dann bis der Batch voll oder flush-interval um ist
+    private void collect(List<Todo> batch) throws InterruptedException {
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        queue.drainTo(batch, batchSize - batch.size());
+        while (batch.size() < batchSize) {
+            Todo next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    private void check(List<Todo> batch) {
+        StringBuilder prompt = new StringBuilder("""
+                Korrigiere die Rechtschreibung der folgenden Todos. Antworte nur mit der Liste, \
+                eine Zeile pro Todo mit der gleichen Nummer, und lass korrekte Todos unverändert:
+                """);
+        for (int i = 0; i < batch.size(); i++) {
+            prompt.append(i + 1).append(". ").append(batch.get(i).description().replace('\n', ' ')).append('\n');
+        }
+        String answer = openAiClient.chat(new OpenAiRequest(prompt.toString())).getAnswer();
+
+        Map<Integer, String> corrections = parseCorrections(answer);
+        List<Todo> changed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Todo todo = batch.get(i);
+            String correction = corrections.get(i + 1);
+            if (correction != null && !correction.isEmpty() && !correction.equals(todo.description())) {
+                changed.add(new Todo(todo.id(), correction, todo.status(), todo.version()));
+            }
+        }
+
+        for (Todo updated : todoRepository.updateDescriptionsIfVersion(changed)) {
+            corrected.increment();
+            if (todoCache != null) {
+                todoCache.evict(updated.id());
+            }
+            eventPublisher.publishEvent(TodoEvent.updated(updated));
+        }
+    }
+
+    private static Map<Integer, String> parseCorrections(String answer) {
+        Map<Integer, String> corrections = new HashMap<>();
+        if (answer == null) {
+            return corrections;
+        }
+        for (String line : answer.split("\n")) {
+            Matcher matcher = NUMBERED_LINE.matcher(line);
+            if (matcher.matches()) {
+                corrections.putIfAbsent(Integer.parseInt(matcher.group(1)), matcher.group(2).replace("**", "").strip());
+            }
+        }
+        return corrections;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+}
@@ -1,21 +1,72 @@
 package de.neuefische.todobackend.service;
 
+import de.neuefische.todobackend.dto.BulkItemResult;
+import de.neuefische.todobackend.dto.BulkOperation;
+import de.neuefische.todobackend.dto.TodoGenerationRequest;
+import de.neuefische.todobackend.dto.TodoPage;
 import de.neuefische.todobackend.dto.TodoWOId;
 import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface TdService {
 
     List<Todo> findAllTodos();
 
+    TodoPage findTodosAfter(TodoStatus status, String after, int limit);
+
+    /**
+     * Mit includeArchived auch die archivierten Todos (siehe TodoArchiver), gelöschte nie.
+     * Ohne Archiv (todo.service=memory) wie ohne includeArchived.
+     */
+    default List<Todo> findAllTodos(boolean includeArchived) {
+        return findAllTodos();
+    }
+
+    default TodoPage findTodosAfter(TodoStatus status, String after, int limit, boolean includeArchived) {
+        return findTodosAfter(status, after, limit);
+    }
+
+    /**
+     * @param after Offset aus dem nextCursor der vorherigen Seite, null für die erste Seite
+     */
+    TodoPage searchTodos(String query, TodoStatus status, String after, int limit);
+
+    Stream<Todo> streamAllTodos();
+
     Todo addTodo(TodoWOId todoWOId);
 
-    Todo updateTodo(TodoWOId todo, String id);
+    /**
+     * @param expectedVersions null = ohne Prüfung überschreiben (bzw. anlegen), sonst nur wenn das Todo noch eine dieser Versionen hat
+     */
+    Todo updateTodo(TodoWOId todo, String id, List<Long> expectedVersions);
 
     Todo findTodoById(String id);
 
+    default Todo findTodoById(String id, boolean includeArchived) {
+        return findTodoById(id);
+    }
+
     void deleteTodo(String id);
 
-    void generateStackOfTodos();
+    List<BulkItemResult> applyBulk(List<BulkOperation> operations);
+
+    Map<TodoStatus, Long> getStatusCounts();
+
+    default List<Todo> generateStackOfTodos(TodoGenerationRequest request) {
+        return generateStackOfTodos(request, todo -> {
+        });
+    }
+
+    /**
+     * Mit Streaming wird jedes Todo gespeichert, sobald seine Zeile da ist. Bricht die Antwort von OpenAI oder das Speichern
+     * mittendrin ab, bleiben die bis dahin gespeicherten Todos erhalten und die Exception kommt heraus.
+     *
+     * @param onCreated wird für jedes gespeicherte Todo sofort aufgerufen, nicht erst wenn alle fertig sind (Fortschritt des Jobs)
+     */
+    List<Todo> generateStackOfTodos(TodoGenerationRequest request, Consumer<Todo> onCreated);
 }
@@ -0,0 +1,157 @@
+package de.neuefische.todobackend.service;
+
+import de.neuefische.todobackend.cache.CacheConfig;
+import de.neuefische.todobackend.dto.TodoEvent;
+import de.neuefische.todobackend.model.ArchivedTodo;
+import de.neuefische.todobackend.repository.MongoTtlIndex;
+import de.neuefische.todobackend.repository.TodoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hält die todo-Collection klein, damit Indizes und Working Set in den Cache von Mongo passen:
+ * Erledigte Todos, die seit todo.archive.done-after nicht geändert wurden, wandern alle todo.archive.interval
+ * in Batches von batch-size in die Collection todo_archive (mit batch-pause dazwischen, um Mongo nicht auszulasten).
+ *
+ * Für die Liste ist ein archiviertes Todo weg (Event DELETED wie beim Change Stream), lesen kann man es weiter
+ * mit includeArchived=true. Gelöschte Todos landen ebenfalls im Archiv (Soft Delete, siehe TodoRepositoryCustom.removeTodo)
+ * und werden von Mongo nach deleted-retention über einen TTL-Index entfernt.
+ *
+ * Laufen mehrere Instanzen, archivieren eben mehrere. Gezählt und als DELETED gemeldet wird nur, was ein Lauf selbst
+ * aus der todo-Collection gelöscht hat, ein Soft Delete im Archiv wird nie überschrieben.
+ * Ohne Mongo (todo.service=memory mit Profil "memory") macht der Archiver nichts.
+ */
+@Service
+public class TodoArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoArchiver.class);
+
+    private final TodoRepository todoRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache todoCache;
+
+    private final Duration doneAfter;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final ScheduledExecutorService background;
+
+    private final Counter archived;
+    private final Counter failed;
+    private final Timer runs;
+
+    public TodoArchiver(ObjectProvider<TodoRepository> todoRepository,
+                        ObjectProvider<MongoTemplate> mongoTemplate,
+                        ApplicationEventPublisher eventPublisher,
+                        CacheManager cacheManager,
+                        MeterRegistry meterRegistry,
+                        @Value("${todo.archive.enabled:false}") boolean enabled,
+                        @Value("${todo.archive.done-after:7d}") Duration doneAfter,
+                        @Value("${todo.archive.interval:10m}") Duration interval,
+                        @Value("${todo.archive.batch-size:500}") int batchSize,
+                        @Value("${todo.archive.batch-pause:100ms}") Duration batchPause,
+                        @Value("${todo.archive.deleted-retention:30d}") Duration deletedRetention,
+                        @Value("${spring.data.mongodb.auto-index-creation:false}") boolean autoIndexCreation) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("todo.archive.batch-size must be greater than 0");
+        }
+        this.todoRepository = todoRepository.getIfAvailable();
+        this.eventPublisher = eventPublisher;
+        this.todoCache = cacheManager.getCache(CacheConfig.TODOS);
+        this.doneAfter = doneAfter;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+
+        this.archived = Counter.builder("todo.archive.archived")
+                .description("Done todos moved to the archive collection")
+                .register(meterRegistry);
+        this.failed = Counter.builder("todo.archive.failed")
+                .description("Archive runs that stopped with an error")
+                .register(meterRegistry);
+        this.runs = Timer.builder("todo.archive.runs")
+                .description("One archive run over all old done todos")
+                .register(meterRegistry);
+
+        //Wie die Indizes aus den @Document-Klassen nur mit auto-index-creation
+        if (autoIndexCreation) {
+            MongoTtlIndex.ensure(mongoTemplate.getIfAvailable(), ArchivedTodo.class, "deletedAt", deletedRetention);
+        }
+        if (enabled && this.todoRepository != null) {
+            this.background = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("todo-archiver").daemon().factory());
+            background.scheduleWithFixedDelay(this::run, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.background = null;
+        }
+    }
+
+    private void run() {
+        try {
+            runs.record(() -> {
+                int count = archiveDoneTodos(Instant.now().minus(doneAfter));
+                if (count > 0) {
+                    log.info("Archived {} done todos", count);
+                }
+            });
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("Archiving done todos failed, retrying in the next run", e);
+        }
+    }
+
+    /**
+     * Archiviert Batch für Batch alle erledigten Todos, die seit updatedBefore nicht geändert wurden.
+     * @return Anzahl archivierter Todos
+     */
+    public int archiveDoneTodos(Instant updatedBefore) {
+        if (todoRepository == null) {
+            return 0;
+        }
+        int total = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<String> ids = todoRepository.archiveDoneTodos(updatedBefore, batchSize);
+            for (String id : ids) {
+                if (todoCache != null) {
+                    todoCache.evict(id);
+                }
+                eventPublisher.publishEvent(TodoEvent.deleted(id));
+            }
+            archived.increment(ids.size());
+            total += ids.size();
+            //Ein nicht voller Batch war der letzte (Todos, die parallel geändert wurden, sind beim nächsten Lauf dran)
+            if (ids.size() < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(batchPause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (background != null) {
+            background.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package de.neuefische.todobackend.service;
+
+import de.neuefische.todobackend.repository.TodoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Die Zähler für GET /api/todo/stats werden bei jedem Schreiben per $inc angepasst, aber nicht in derselben Transaktion
+ * wie das Todo (Mongo ohne Replica Set kann das nicht). Fällt eine Instanz zwischen beiden Schritten aus, weicht der
+ * Zähler ab. Nur zur Absicherung dafür wird alle todo.counters.reconcile-interval neu gezählt
+ * (eine Aggregation über den Index status_id).
+ * Ohne Mongo (todo.service=memory mit Profil "memory") gibt es nichts zu tun, dort zählt der InMemoryTodoService selbst.
+ */
+@Service
+public class TodoCountReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoCountReconciler.class);
+
+    private final ScheduledExecutorService background;
+    private final Counter failed;
+
+    public TodoCountReconciler(ObjectProvider<TodoRepository> todoRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${todo.counters.reconcile-interval:10m}") Duration interval) {
+        this.failed = Counter.builder("todo.counters.reconcile.failed")
+                .description("Recounts of the todo status counters that stopped with an error")
+                .register(meterRegistry);
+        TodoRepository repository = todoRepository.getIfAvailable();
+        if (repository != null && interval.isPositive()) {
+            this.background = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("todo-count-reconciler").daemon().factory());
+            background.scheduleWithFixedDelay(() -> reconcile(repository),
+                    interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.background = null;
+        }
+    }
+
+    private void reconcile(TodoRepository repository) {
+        try {
+            repository.reconcileStatusCounts();
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("Recounting todo status counters failed, retrying in the next run", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (background != null) {
+            background.shutdownNow();
+        }
+    }
+}
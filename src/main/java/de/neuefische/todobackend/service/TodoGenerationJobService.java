@@ -0,0 +1,152 @@
+package de.neuefische.todobackend.service;
+
+import de.neuefische.todobackend.dto.TodoGenerationRequest;
+import de.neuefische.todobackend.model.GenerationJob;
+import de.neuefische.todobackend.model.GenerationJobStatus;
+import de.neuefische.todobackend.model.Todo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Führt das Generieren von Todos im Hintergrund aus, damit der Request-Thread nicht auf OpenAI warten muss.
+ * Die Jobs werden nur im Speicher gehalten, nach einem Neustart sind sie weg.
+ *
+ * Kommt eine Anfrage, für die schon ein gleicher Job wartet oder läuft, bekommt der Aufrufer diesen Job zurück
+ * und es wird kein zweiter Stapel Todos angelegt (Metrik todo.generation.coalesced).
+ */
+@Service
+public class TodoGenerationJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(TodoGenerationJobService.class);
+
+    private final IdService idService;
+    private final ExecutorService executor;
+    private final int retainedJobs;
+
+    private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+    //Reihenfolge in der die Jobs angelegt wurden, damit wir alte, fertige Jobs wieder aufräumen können
+    private final Queue<String> jobOrder = new ConcurrentLinkedQueue<>();
+    //Gleiche Anfrage -> Id des Jobs, der sie gerade bearbeitet (nur solange er wartet oder läuft)
+    private final Map<TodoGenerationRequest, String> activeJobs = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public TodoGenerationJobService(IdService idService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${todo.generation.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                                    @Value("${todo.generation.queue-capacity:20}") int queueCapacity,
+                                    @Value("${todo.generation.retained-jobs:100}") int retainedJobs,
+                                    @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.idService = idService;
+        this.retainedJobs = retainedJobs;
+        this.coalesced = Counter.builder("todo.generation.coalesced")
+                .description("Generation requests answered with an identical job that was already queued or running")
+                .register(meterRegistry);
+        //Volle Queue -> RejectedExecutionException, der Client bekommt dann 503 statt endlos zu warten
+        this.executor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory(virtualThreads));
+    }
+
+    //Mit virtuellen Threads kostet ein Job, der auf OpenAI wartet, keinen Plattform-Thread mehr.
+    //Die Anzahl gleichzeitiger Jobs bleibt trotzdem begrenzt, damit wir OpenAI nicht fluten.
+    private static ThreadFactory threadFactory(boolean virtualThreads) {
+        if (virtualThreads) {
+            return Thread.ofVirtual().name("todo-generation-", 1).factory();
+        }
+        return Thread.ofPlatform().name("todo-generation-", 1).factory();
+    }
+
+    public GenerationJob submit(TodoGenerationRequest request,
+                                BiFunction<TodoGenerationRequest, Consumer<Todo>, List<Todo>> generator) {
+        GenerationJob job = new GenerationJob(idService.randomId(), request.topic(), request.count(),
+                GenerationJobStatus.QUEUED, 0, null);
+        //Der Job steht schon in jobs, bevor ein zweiter Aufrufer seine Id in activeJobs sehen kann
+        String activeId = activeJobs.computeIfAbsent(request, key -> {
+            jobs.put(job.id(), job);
+            return job.id();
+        });
+        if (!activeId.equals(job.id())) {
+            GenerationJob active = jobs.get(activeId);
+            if (active != null) {
+                coalesced.increment();
+                return active;
+            }
+            jobs.put(job.id(), job);
+            activeJobs.put(request, job.id());
+        }
+        jobOrder.add(job.id());
+        evictFinishedJobs();
+
+        try {
+            executor.execute(() -> run(job.id(), request, generator));
+        } catch (RuntimeException e) {
+            activeJobs.remove(request, job.id());
+            jobs.remove(job.id());
+            jobOrder.remove(job.id());
+            throw e;
+        }
+        return job;
+    }
+
+    public GenerationJob findJobById(String id) {
+        GenerationJob job = jobs.get(id);
+        if (job == null) {
+            throw new NoSuchElementException("Generation job with id: " + id + " not found!");
+        }
+        return job;
+    }
+
+    private void run(String jobId, TodoGenerationRequest request,
+                     BiFunction<TodoGenerationRequest, Consumer<Todo>, List<Todo>> generator) {
+        jobs.computeIfPresent(jobId, (id, job) -> job.withStatus(GenerationJobStatus.RUNNING));
+        try {
+            //Beim Streaming werden die Todos einzeln gespeichert, der Job zeigt den Fortschritt also schon während er läuft
+            List<Todo> created = generator.apply(request,
+                    todo -> jobs.computeIfPresent(jobId, (id, job) -> job.withCreated(job.created() + 1)));
+            jobs.computeIfPresent(jobId, (id, job) -> job.done(created.size()));
+        } catch (RuntimeException e) {
+            log.warn("Generation job {} failed", jobId, e);
+            jobs.computeIfPresent(jobId, (id, job) -> job.failed(e.getMessage()));
+        } finally {
+            activeJobs.remove(request, jobId);
+        }
+    }
+
+    private void evictFinishedJobs() {
+        while (jobOrder.size() > retainedJobs) {
+            String oldest = jobOrder.peek();
+            GenerationJob job = oldest == null ? null : jobs.get(oldest);
+            if (job != null && !job.isFinished()) {
+                return;
+            }
+            if (jobOrder.remove(oldest)) {
+                jobs.remove(oldest);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
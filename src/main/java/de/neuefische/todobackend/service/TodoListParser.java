@@ -0,0 +1,93 @@
+package de.neuefische.todobackend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Macht aus der Antwort von ChatGPT ("1. Putzen\n2. Einkaufen ...") die einzelnen Todo-Beschreibungen.
+ * Beim Streaming kommt die Antwort in kleinen Stücken, dafür gibt es incremental(): jede Zeile wird ausgewertet,
+ * sobald ihr Zeilenumbruch da ist.
+ */
+public final class TodoListParser {
+
+    //Nummer oder Aufzählungszeichen am Anfang der Zeile: "1. ", "1.", "1) ", "1.) ", "1: ", "1 - ", "- ", "* ", "• ", "**1.** "
+    //"3D-Drucker reinigen" oder "2 Eier kaufen" bleiben, da fehlt das Trennzeichen nach der Zahl
+    private static final Pattern LIST_MARKER = Pattern.compile("^(?:\\*\\*)?(?:\\d+\\s*[.):]+|\\d+\\s+[-–]|[-–*•](?=\\s))(?:\\*\\*)?\\s*");
+
+    private TodoListParser() {
+    }
+
+    public static List<String> parse(String answer, int maxCount) {
+        List<String> descriptions = new ArrayList<>();
+        Incremental parser = incremental(maxCount, descriptions::add);
+        parser.accept(answer);
+        parser.finish();
+        return descriptions;
+    }
+
+    /**
+     * @return die Beschreibung ohne Nummerierung, oder null wenn die Zeile kein Todo ist
+     * (Leerzeile oder eine Überschrift wie "Hier ist deine Liste:")
+     */
+    public static String parseLine(String line) {
+        String description = LIST_MARKER.matcher(line.strip()).replaceFirst("")
+                .replace("**", "")
+                .strip();
+        if (description.isEmpty() || description.endsWith(":")) {
+            return null;
+        }
+        return description;
+    }
+
+    public static Incremental incremental(int maxCount, Consumer<String> onDescription) {
+        return new Incremental(maxCount, onDescription);
+    }
+
+    /**
+     * Bekommt die Antwort in beliebigen Stücken (accept) und meldet jede fertige Zeile als Todo.
+     * Nach dem letzten Stück muss finish() aufgerufen werden, die letzte Zeile hat meist keinen Zeilenumbruch.
+     */
+    public static final class Incremental implements Consumer<String> {
+
+        private final int maxCount;
+        private final Consumer<String> onDescription;
+        private final StringBuilder pending = new StringBuilder();
+        private int count;
+
+        private Incremental(int maxCount, Consumer<String> onDescription) {
+            this.maxCount = maxCount;
+            this.onDescription = onDescription;
+        }
+
+        @Override
+        public void accept(String chunk) {
+            pending.append(chunk);
+            int newline;
+            while ((newline = pending.indexOf("\n")) >= 0) {
+                String line = pending.substring(0, newline);
+                pending.delete(0, newline + 1);
+                emit(line);
+            }
+        }
+
+        public void finish() {
+            if (!pending.isEmpty()) {
+                emit(pending.toString());
+                pending.setLength(0);
+            }
+        }
+
+        private void emit(String line) {
+            if (count == maxCount) {
+                return;
+            }
+            String description = parseLine(line);
+            if (description != null) {
+                count++;
+                onDescription.accept(description);
+            }
+        }
+    }
+}
@@ -1,53 +1,82 @@
 package de.neuefische.todobackend.service;
 
+import de.neuefische.todobackend.cache.CacheConfig;
+import de.neuefische.todobackend.dto.TodoGenerationRequest;
+import de.neuefische.todobackend.dto.TodoEvent;
 import de.neuefische.todobackend.dto.TodoWOId;
 import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
 import de.neuefische.todobackend.repository.TodoRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+//Mongo ohne OpenAI, aktiv mit todo.service=mongo
 @Service
-public class TodoService implements TdService{
+@ConditionalOnProperty(name = "todo.service", havingValue = "mongo")
+public class TodoService extends MongoTdService {
 
-    private final TodoRepository todoRepository;
-    private final IdService idService;
-
-    public TodoService(TodoRepository todoRepository, IdService idService) {
-        this.todoRepository = todoRepository;
-        this.idService = idService;
+    public TodoService(TodoRepository todoRepository, IdService idService, ApplicationEventPublisher eventPublisher) {
+        super(todoRepository, idService, eventPublisher);
     }
 
     public List<Todo> findAllTodos() {
         return todoRepository.findAll();
     }
 
+    public Stream<Todo> streamAllTodos() {
+        return todoRepository.streamAllByOrderByIdAsc();
+    }
+
     public Todo addTodo(TodoWOId todoWOId) {
         String id = idService.randomId();
 
         Todo todoToSave = new Todo(id, todoWOId.description(), todoWOId.status());
 
-        return todoRepository.save(todoToSave);
+        Todo saved = todoRepository.insertTodo(todoToSave);
+        eventPublisher.publishEvent(TodoEvent.created(saved));
+        return saved;
     }
 
-    public Todo updateTodo(TodoWOId todo, String id) {
+    @CachePut(cacheNames = CacheConfig.TODOS, key = "#id")
+    public Todo updateTodo(TodoWOId todo, String id, List<Long> expectedVersions) {
         Todo todoToUpdate = new Todo(id, todo.description(), todo.status());
 
-        return todoRepository.save(todoToUpdate);
+        Todo updated = expectedVersions == null
+                ? todoRepository.upsertTodo(todoToUpdate)
+                : todoRepository.updateTodoIfVersion(todoToUpdate, expectedVersions);
+        eventPublisher.publishEvent(TodoEvent.updated(updated));
+        return updated;
     }
 
+    @Cacheable(cacheNames = CacheConfig.TODOS, key = "#id", sync = true)
     public Todo findTodoById(String id) {
         return todoRepository.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("Todo with id: " + id + " not found!"));
     }
 
+    @CacheEvict(cacheNames = CacheConfig.TODOS, key = "#id")
     public void deleteTodo(String id) {
-        todoRepository.deleteById(id);
+        if (todoRepository.removeTodo(id)) {
+            eventPublisher.publishEvent(TodoEvent.deleted(id));
+        }
     }
 
-    @Override
-    public void generateStackOfTodos() {
+    public Map<TodoStatus, Long> getStatusCounts() {
+        return todoRepository.countByStatus();
+    }
 
+    @Override
+    public List<Todo> generateStackOfTodos(TodoGenerationRequest request, Consumer<Todo> onCreated) {
+        return List.of();
     }
 }
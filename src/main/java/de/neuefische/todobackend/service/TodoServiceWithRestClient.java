@@ -1,99 +1,126 @@
 package de.neuefische.todobackend.service;
 
+import de.neuefische.todobackend.cache.CacheConfig;
+import de.neuefische.todobackend.dto.TodoGenerationRequest;
+import de.neuefische.todobackend.dto.TodoEvent;
 import de.neuefische.todobackend.dto.TodoWOId;
 import de.neuefische.todobackend.model.Todo;
 import de.neuefische.todobackend.model.TodoStatus;
 import de.neuefische.todobackend.model.openAi.OpenAiRequest;
-import de.neuefische.todobackend.model.openAi.OpenAiResponse;
 import de.neuefische.todobackend.repository.TodoRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+//Mongo mit OpenAI, der Standard (todo.service=openai)
 @Service
-public class TodoServiceWithRestClient implements TdService{
+@ConditionalOnProperty(name = "todo.service", havingValue = "openai", matchIfMissing = true)
+public class TodoServiceWithRestClient extends MongoTdService {
 
-    private final TodoRepository todoRepository;
-    private final IdService idService;
-
-    private final RestClient client;
+    private final OpenAiClient openAiClient;
+    private final SpellCheckPipeline spellCheckPipeline;
+    private final boolean streamGeneration;
 
     public TodoServiceWithRestClient(TodoRepository todoRepository,
                                      IdService idService,
-                                     @Value("${BASE_URL}") String baseUrl,
-                                     @Value("${API_KEY}") String authKey) {
-        this.todoRepository = todoRepository;
-        this.idService = idService;
-        this.client = RestClient.builder()
-                .defaultHeader("Authorization", "Bearer "+authKey)
-                .baseUrl(baseUrl)
-                .build();
+                                     OpenAiClient openAiClient,
+                                     ApplicationEventPublisher eventPublisher,
+                                     SpellCheckPipeline spellCheckPipeline,
+                                     @Value("${todo.generation.stream:true}") boolean streamGeneration) {
+        super(todoRepository, idService, eventPublisher);
+        this.openAiClient = openAiClient;
+        this.spellCheckPipeline = spellCheckPipeline;
+        this.streamGeneration = streamGeneration;
     }
 
     public List<Todo> findAllTodos() {
         return todoRepository.findAll();
     }
 
+    public Stream<Todo> streamAllTodos() {
+        return todoRepository.streamAllByOrderByIdAsc();
+    }
+
     public Todo addTodo(TodoWOId todoWOId) {
         String id = idService.randomId();
-        //Prüfung der Schreibweise durch ChatGPT -> BETA
-        //String spellCheckedName = checkSpelling(todoWOId.description());
-        //Todo todoToSave = new Todo(id, spellCheckedName, todoWOId.status());
 
         Todo todoToSave = new Todo(id, todoWOId.description(), todoWOId.status());
-        return todoRepository.save(todoToSave);
+        Todo saved = todoRepository.insertTodo(todoToSave);
+        eventPublisher.publishEvent(TodoEvent.created(saved));
+        //Prüfung der Schreibweise durch ChatGPT läuft im Hintergrund und gesammelt für mehrere Todos (todo.spell-check.*)
+        spellCheckPipeline.submit(saved);
+        return saved;
     }
 
-    public Todo updateTodo(TodoWOId todo, String id) {
+    @CachePut(cacheNames = CacheConfig.TODOS, key = "#id")
+    public Todo updateTodo(TodoWOId todo, String id, List<Long> expectedVersions) {
         Todo todoToUpdate = new Todo(id, todo.description(), todo.status());
 
-        return todoRepository.save(todoToUpdate);
+        Todo updated = expectedVersions == null
+                ? todoRepository.upsertTodo(todoToUpdate)
+                : todoRepository.updateTodoIfVersion(todoToUpdate, expectedVersions);
+        eventPublisher.publishEvent(TodoEvent.updated(updated));
+        return updated;
     }
 
+    @Cacheable(cacheNames = CacheConfig.TODOS, key = "#id", sync = true)
     public Todo findTodoById(String id) {
         return todoRepository.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("Todo with id: " + id + " not found!"));
     }
 
+    @CacheEvict(cacheNames = CacheConfig.TODOS, key = "#id")
     public void deleteTodo(String id) {
-        todoRepository.deleteById(id);
+        if (todoRepository.removeTodo(id)) {
+            eventPublisher.publishEvent(TodoEvent.deleted(id));
+        }
     }
 
-    public void generateStackOfTodos(){
-        OpenAiRequest request = new OpenAiRequest("Generiere mir eine Liste mit 10 todos für das Thema: Haushalt");
-        String response = client.post()
-                .body(request)
-                .retrieve()
-                .body(OpenAiResponse.class)
-                .getAnswer();
-
-        //Die "Liste" die ChatGPT schickt ist ein String mit nummerierten Todos, das \n ist ein Zeilenumbruch
-        //Wir wollen also für jeden Umbruch einen neuen Eintrag in unserer Liste, deshalb Arrays.asList().
-        List<String> todos = Arrays.asList(response.split("\n"));
-        for (String s:todos) {
-            //z. B. "1. Putzen" steht aktuell im String, wir wollen aber nur "Putzen", weshalb wir den Index des
-            //Leerzeichens wissen wollen.
-            int spaceIndex = s.indexOf(' ');
-            //substring erstellt uns einen neuen String aus einem Teil des Originals. wir geben an ab welcher Stelle
-            //des Originals der substring starten soll, nämlich ein Zeichen nach dem Leerzeichen,
-            //so wird aus "1. Putzen" -> "Putzen"
-            addTodo(new TodoWOId(s.substring(spaceIndex+1), TodoStatus.OPEN));
-        }
+    public Map<TodoStatus, Long> getStatusCounts() {
+        return todoRepository.countByStatus();
     }
 
+    public List<Todo> generateStackOfTodos(TodoGenerationRequest generationRequest, Consumer<Todo> onCreated){
+        OpenAiRequest request = new OpenAiRequest("Generiere mir eine Liste mit " + generationRequest.count()
+                + " todos für das Thema: " + generationRequest.topic());
+        if (streamGeneration) {
+            //Jedes Todo wird gespeichert, sobald seine Zeile komplett ist, nicht erst am Ende der ganzen Antwort
+            List<Todo> saved = new ArrayList<>();
+            TodoListParser.Incremental parser = TodoListParser.incremental(generationRequest.count(), description -> {
+                Todo todo = todoRepository.insertTodo(new Todo(idService.randomId(), description, TodoStatus.OPEN));
+                saved.add(todo);
+                eventPublisher.publishEvent(TodoEvent.created(todo));
+                onCreated.accept(todo);
+            });
+            openAiClient.chatStream(request, generationRequest.bypassCache(), parser);
+            parser.finish();
+            return saved;
+        }
 
-    //Nach 2h versuchen eine konstante Antwort zu erhalten: Diese Methode ist noch in der Beta :D
-    private String checkSpelling(String textToCheckSpelling){
-        OpenAiRequest request = new OpenAiRequest("Wie schreibt man: "+ textToCheckSpelling + "Gib mir die korrekte Schreibweise bitte in ");
-        return client.post()
-                .body(request)
-                .retrieve()
-                .body(OpenAiResponse.class)
+        String response = openAiClient.chat(request, generationRequest.bypassCache())
                 .getAnswer();
 
+        List<Todo> todos = TodoListParser.parse(response, generationRequest.count()).stream()
+                .map(description -> new Todo(idService.randomId(), description, TodoStatus.OPEN))
+                .toList();
+        //Alle Todos mit einem einzigen insert speichern statt einem save pro Todo
+        List<Todo> saved = todoRepository.insertTodos(todos);
+        saved.forEach(todo -> {
+            eventPublisher.publishEvent(TodoEvent.created(todo));
+            onCreated.accept(todo);
+        });
+        return saved;
     }
+
 }
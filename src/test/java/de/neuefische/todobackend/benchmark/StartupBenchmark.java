@@ -0,0 +1,207 @@
+package de.neuefische.todobackend.benchmark;
+
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Misst Startzeit (Prozessstart bis /actuator/health mit 200) und RSS direkt danach für die Varianten aus dem Profil fast-startup:
+ * - jar: java -jar (das normale Spring-Boot-Jar)
+ * - jar-aot: dasselbe mit -Dspring.aot.enabled=true
+ * - extracted: target/fast-startup/application.jar (ausgepackte Abhängigkeiten)
+ * - extracted-aot-cds: target/fast-startup/run.sh, also AOT + CDS-Archiv
+ * - native: target/cgn-java-24-1-spring-all-in-one aus mvn -Pnative native:compile
+ * Varianten, deren Artefakte fehlen, werden übersprungen. Jede Variante läuft als eigener Prozess benchmark.startupRuns Mal,
+ * ins Ergebnis kommt der Median.
+ *
+ * Vorher bauen: mvn package -DskipTests -Pfast-startup
+ * Starten mit: mvn test -Pbenchmark -Dtest=StartupBenchmark
+ * Gegen eine echte Mongo statt der embedded: -Dbenchmark.mongoUri=mongodb://localhost:27017/startup-benchmark
+ * Ergebnis: target/benchmarks/startup.json
+ */
+@Tag("benchmark")
+class StartupBenchmark {
+
+    private static final int RUNS = Integer.getInteger("benchmark.startupRuns", 5);
+    private static final Duration TIMEOUT = Duration.ofSeconds(Long.getLong("benchmark.startupTimeoutSeconds", 60));
+    private static final Path TARGET = Path.of("target");
+    private static final Path FAST_STARTUP = TARGET.resolve("fast-startup");
+
+    @Test
+    void measureStartup_ofJarAotCdsAndNativeVariants() throws Exception {
+        String mongoUri = System.getProperty("benchmark.mongoUri");
+        TransitionWalker.ReachedState<RunningMongodProcess> mongod = null;
+        if (mongoUri == null) {
+            mongod = Mongod.instance().start(Version.Main.V6_0);
+            mongoUri = "mongodb://" + mongod.current().getServerAddress().getHost() + ":"
+                    + mongod.current().getServerAddress().getPort() + "/startup-benchmark";
+        }
+        try (HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build()) {
+            List<StartupResult> results = new ArrayList<>();
+            for (Variant variant : variants()) {
+                long[] startupMillis = new long[RUNS];
+                long[] rssKb = new long[RUNS];
+                for (int run = 0; run < RUNS; run++) {
+                    long[] measurement = start(http, variant, mongoUri);
+                    startupMillis[run] = measurement[0];
+                    rssKb[run] = measurement[1];
+                }
+                results.add(new StartupResult(variant.name(), median(startupMillis), median(rssKb) / 1024.0));
+            }
+            assertFalse(results.isEmpty(), "Nothing to measure, build with mvn package -DskipTests -Pfast-startup first");
+
+            String report = """
+                    {
+                      "runs": %d,
+                      "javaVersion": "%s",
+                      "variants": [
+                    %s
+                      ]
+                    }
+                    """.formatted(RUNS, System.getProperty("java.version"),
+                    results.stream().map(result -> "    " + result.toJson()).collect(Collectors.joining(",\n")));
+            Path file = TARGET.resolve("benchmarks").resolve("startup.json");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, report);
+            System.out.println(report);
+        } finally {
+            if (mongod != null) {
+                mongod.close();
+            }
+        }
+    }
+
+    private List<Variant> variants() throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Variant> variants = new ArrayList<>();
+        Path jar = bootJar();
+        if (jar != null) {
+            variants.add(new Variant("jar", TARGET, List.of(java, "-jar", jar.getFileName().toString())));
+            if (Files.isDirectory(TARGET.resolve("spring-aot"))) {
+                variants.add(new Variant("jar-aot", TARGET,
+                        List.of(java, "-Dspring.aot.enabled=true", "-jar", jar.getFileName().toString())));
+            }
+        }
+        if (Files.exists(FAST_STARTUP.resolve("application.jar"))) {
+            variants.add(new Variant("extracted", FAST_STARTUP, List.of(java, "-jar", "application.jar")));
+        }
+        if (Files.exists(FAST_STARTUP.resolve("application.jsa"))) {
+            variants.add(new Variant("extracted-aot-cds", FAST_STARTUP, List.of(java,
+                    "-XX:SharedArchiveFile=application.jsa", "-Dspring.aot.enabled=true", "-jar", "application.jar")));
+        }
+        Path nativeImage = TARGET.resolve("cgn-java-24-1-spring-all-in-one");
+        if (Files.isExecutable(nativeImage)) {
+            variants.add(new Variant("native", TARGET, List.of(nativeImage.toAbsolutePath().toString())));
+        }
+        return variants;
+    }
+
+    private static Path bootJar() throws IOException {
+        try (Stream<Path> files = Files.list(TARGET)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    //[0] = Millisekunden bis zur ersten Antwort 200 von /actuator/health, [1] = VmRSS in KB zu diesem Zeitpunkt
+    private long[] start(HttpClient http, Variant variant, String mongoUri) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(variant.command());
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--MONGO_DB_URI=" + mongoUri,
+                "--BASE_URL=http://localhost:1",
+                "--API_KEY=benchmark",
+                "--logging.level.root=WARN"));
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(variant.directory().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            long deadline = start + TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(variant.name() + " exited with code " + process.exitValue());
+                }
+                try {
+                    if (http.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        long startupMillis = (System.nanoTime() - start) / 1_000_000;
+                        return new long[]{startupMillis, rssKb(process.pid())};
+                    }
+                } catch (ConnectException e) {
+                    //Tomcat läuft noch nicht
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(variant.name() + " did not become healthy within " + TIMEOUT);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    //Nur unter Linux, sonst -1
+    private static long rssKb(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                .findFirst()
+                .orElse(-1L);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    record Variant(String name, Path directory, List<String> command) {
+    }
+
+    record StartupResult(String variant, long startupMillis, double rssMb) {
+
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"variant\": \"%s\", \"startupMs\": %d, \"rssMb\": %.1f}",
+                    variant, startupMillis, rssMb);
+        }
+    }
+}
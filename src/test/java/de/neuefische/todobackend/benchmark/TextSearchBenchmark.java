@@ -0,0 +1,167 @@
+package de.neuefische.todobackend.benchmark;
+
+import de.neuefische.todobackend.TodoBackendApplication;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Misst die Latenz von GET /api/todo/search bei 1 Mio. Todos (Mongo Text-Index).
+ * Die Todos bestehen aus zufälligen Wörtern eines festen Vokabulars, gesucht wird nach ein bis zwei dieser Wörter,
+ * in der Hälfte der Fälle zusätzlich mit Status-Filter. Schlägt fehl, wenn p95 über dem Grenzwert liegt.
+ *
+ * Starten mit: mvn test -Pbenchmark -Dtest=TextSearchBenchmark
+ * Gegen eine echte Mongo statt der embedded: -Dbenchmark.mongoUri=mongodb://localhost:27017/search-benchmark
+ * Ergebnis: target/benchmarks/text-search.json
+ */
+@Tag("benchmark")
+class TextSearchBenchmark {
+
+    private static final int DOCUMENTS = Integer.getInteger("benchmark.documents", 1_000_000);
+    private static final int QUERIES = Integer.getInteger("benchmark.queries", 2_000);
+    private static final int WARMUP_QUERIES = Integer.getInteger("benchmark.warmupQueries", 500);
+    private static final double MAX_P95_MS = Double.parseDouble(System.getProperty("benchmark.maxP95Ms", "50"));
+    private static final int BATCH_SIZE = 10_000;
+
+    //Wenige häufige und viele seltene Wörter, wie in echten Todo-Listen
+    private static final String[] COMMON_WORDS = {"einkaufen", "putzen", "anrufen", "bezahlen", "reparieren", "planen"};
+    private static final String[] OBJECTS = buildObjects();
+
+    @Test
+    void searchTodos_shouldAnswerWithinP95Budget_whenCollectionHasOneMillionTodos() throws Exception {
+        ConfigurableApplicationContext app = new SpringApplicationBuilder(TodoBackendApplication.class)
+                .properties(benchmarkProperties())
+                .run();
+        try (HttpClient http = HttpClient.newHttpClient()) {
+            long seedStart = System.nanoTime();
+            seed(app.getBean(MongoTemplate.class));
+            double seedSeconds = (System.nanoTime() - seedStart) / 1_000_000_000.0;
+
+            String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port") + "/api/todo/search";
+            Random random = new Random(42);
+            for (int i = 0; i < WARMUP_QUERIES; i++) {
+                search(http, baseUrl, random);
+            }
+            long[] latencies = new long[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                latencies[i] = search(http, baseUrl, random);
+            }
+            Arrays.sort(latencies);
+
+            double p50 = percentile(latencies, 0.50);
+            double p95 = percentile(latencies, 0.95);
+            double p99 = percentile(latencies, 0.99);
+            String report = String.format(Locale.ROOT, """
+                    {
+                      "documents": %d,
+                      "queries": %d,
+                      "seedSeconds": %.1f,
+                      "p50Ms": %.2f,
+                      "p95Ms": %.2f,
+                      "p99Ms": %.2f,
+                      "maxMs": %.2f,
+                      "maxP95Ms": %.1f
+                    }
+                    """, DOCUMENTS, QUERIES, seedSeconds, p50, p95, p99, latencies[QUERIES - 1] / 1_000_000.0, MAX_P95_MS);
+            Path file = Path.of("target", "benchmarks", "text-search.json");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, report);
+            System.out.println(report);
+
+            assertTrue(p95 < MAX_P95_MS, "p95 of " + p95 + " ms exceeds " + MAX_P95_MS + " ms");
+        } finally {
+            app.close();
+        }
+    }
+
+    private static String[] benchmarkProperties() {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "BASE_URL=http://localhost:1",
+                "API_KEY=benchmark",
+                "logging.level.root=WARN"));
+        String mongoUri = System.getProperty("benchmark.mongoUri");
+        if (mongoUri != null) {
+            properties.add("spring.data.mongodb.uri=" + mongoUri);
+            properties.add("spring.autoconfigure.exclude=de.flapdoodle.embed.mongo.spring.autoconfigure.EmbeddedMongoAutoConfiguration");
+        }
+        return properties.toArray(String[]::new);
+    }
+
+    //Direkt über das MongoTemplate in großen Batches, über die API würde das Befüllen ewig dauern
+    private void seed(MongoTemplate mongoTemplate) {
+        mongoTemplate.remove(new Query(), Todo.class);
+        Random random = new Random(7);
+        TodoStatus[] statuses = TodoStatus.values();
+        for (int start = 0; start < DOCUMENTS; start += BATCH_SIZE) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Todo.class);
+            for (int i = start; i < Math.min(start + BATCH_SIZE, DOCUMENTS); i++) {
+                String description = COMMON_WORDS[random.nextInt(COMMON_WORDS.length)] + " "
+                        + OBJECTS[random.nextInt(OBJECTS.length)] + " "
+                        + OBJECTS[random.nextInt(OBJECTS.length)];
+                bulk.insert(new Todo(String.format("%08d", i), description, statuses[random.nextInt(statuses.length)], 0L));
+            }
+            bulk.execute();
+        }
+    }
+
+    private long search(HttpClient http, String baseUrl, Random random) throws IOException, InterruptedException {
+        String q = random.nextBoolean()
+                ? OBJECTS[random.nextInt(OBJECTS.length)]
+                : OBJECTS[random.nextInt(OBJECTS.length)] + " " + OBJECTS[random.nextInt(OBJECTS.length)];
+        String url = baseUrl + "?limit=20&q=" + URLEncoder.encode(q, StandardCharsets.UTF_8);
+        if (random.nextBoolean()) {
+            url += "&status=" + TodoStatus.values()[random.nextInt(TodoStatus.values().length)];
+        }
+        long start = System.nanoTime();
+        HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        long latency = System.nanoTime() - start;
+        assertEquals(200, response.statusCode());
+        return latency;
+    }
+
+    private static String[] buildObjects() {
+        String[] stems = {"fenster", "garage", "keller", "auto", "fahrrad", "steuer", "rechnung", "geschenk", "küche",
+                "bad", "garten", "balkon", "wohnung", "versicherung", "arzt", "termin", "paket", "drucker", "heizung", "dach"};
+        String[] qualifiers = {"alt", "neu", "gross", "klein", "rot", "blau", "oma", "opa", "chef", "nachbar",
+                "schule", "büro", "urlaub", "winter", "sommer", "hund", "katze", "kind", "bank", "post"};
+        String[] objects = new String[stems.length * qualifiers.length];
+        int i = 0;
+        for (String qualifier : qualifiers) {
+            for (String stem : stems) {
+                objects[i++] = qualifier + stem;
+            }
+        }
+        return objects;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,216 @@
+package de.neuefische.todobackend.benchmark;
+
+import de.neuefische.todobackend.TodoBackendApplication;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die p99-Latenz der CRUD-Endpunkte mit und ohne virtuelle Threads,
+ * während gleichzeitig viele Generierungs-Jobs auf ein langsames OpenAI (MockWebServer mit Verzögerung) warten.
+ * Tomcat wird in beiden Modi auf 50 Threads begrenzt, die CRUD-Clients liegen deutlich darüber.
+ *
+ * Starten mit: mvn test -Pbenchmark -Dtest=VirtualThreadsLatencyBenchmark
+ * Ergebnis: target/benchmarks/virtual-threads.json
+ */
+@Tag("benchmark")
+class VirtualThreadsLatencyBenchmark {
+
+    private static final int SEEDED_TODOS = 200;
+    private static final int CRUD_CLIENTS = Integer.getInteger("benchmark.crudClients", 400);
+    private static final int SLOW_JOBS = Integer.getInteger("benchmark.slowJobs", 200);
+    private static final long UPSTREAM_DELAY_MS = Long.getLong("benchmark.upstreamDelayMs", 2000);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("benchmark.warmupSeconds", 5));
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("benchmark.durationSeconds", 20));
+
+    private static final String OPENAI_ANSWER = """
+            {
+                "id": "chatcmpl-benchmark",
+                "choices": [
+                    {
+                        "index": 0,
+                        "message": {"role": "assistant", "content": "1. Staubsaugen\\n2. Fenster putzen"}
+                    }
+                ]
+            }
+            """;
+
+    @Test
+    void compareCrudLatency_withPlatformAndVirtualThreads() throws Exception {
+        MockWebServer upstream = new MockWebServer();
+        upstream.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .addHeader("Content-Type", "application/json")
+                        .setHeadersDelay(UPSTREAM_DELAY_MS, TimeUnit.MILLISECONDS)
+                        .setBody(OPENAI_ANSWER);
+            }
+        });
+        upstream.start();
+        try {
+            LatencyResult platform = run(false, upstream);
+            LatencyResult virtual = run(true, upstream);
+
+            String report = """
+                    {
+                      "crudClients": %d,
+                      "slowJobs": %d,
+                      "upstreamDelayMs": %d,
+                      "platformThreads": %s,
+                      "virtualThreads": %s
+                    }
+                    """.formatted(CRUD_CLIENTS, SLOW_JOBS, UPSTREAM_DELAY_MS, platform.toJson(), virtual.toJson());
+            Path file = Path.of("target", "benchmarks", "virtual-threads.json");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, report);
+            System.out.println(report);
+        } finally {
+            upstream.shutdown();
+        }
+    }
+
+    private LatencyResult run(boolean virtualThreads, MockWebServer upstream) throws Exception {
+        ConfigurableApplicationContext app = new SpringApplicationBuilder(TodoBackendApplication.class)
+                .properties(
+                        "server.port=0",
+                        "BASE_URL=" + upstream.url("/"),
+                        "API_KEY=benchmark",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "server.tomcat.threads.max=50",
+                        "todo.generation.max-concurrent-jobs=" + SLOW_JOBS,
+                        "todo.generation.queue-capacity=" + SLOW_JOBS * 10,
+                        "openai.bulkhead.max-concurrent-calls=" + SLOW_JOBS,
+                        "openai.cache.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder().executor(clients).build()) {
+            String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port") + "/api/todo";
+            List<String> ids = seed(http, baseUrl);
+
+            load(http, clients, baseUrl, ids, WARMUP);
+            return load(http, clients, baseUrl, ids, MEASUREMENT);
+        } finally {
+            app.close();
+        }
+    }
+
+    private List<String> seed(HttpClient http, String baseUrl) throws IOException, InterruptedException {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < SEEDED_TODOS; i++) {
+            HttpResponse<String> response = http.send(jsonRequest(URI.create(baseUrl))
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"description\":\"todo " + i + "\",\"status\":\"OPEN\"}"))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            String body = response.body();
+            int start = body.indexOf("\"id\":\"") + 6;
+            ids.add(body.substring(start, body.indexOf('"', start)));
+        }
+        return ids;
+    }
+
+    private LatencyResult load(HttpClient http, ExecutorService clients, String baseUrl, List<String> ids, Duration duration)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<long[]> samples = new ArrayList<>();
+
+        //Langsame Last: ständig neue Generierungs-Jobs, die jeweils UPSTREAM_DELAY_MS auf OpenAI warten
+        clients.submit(() -> {
+            while (System.nanoTime() < deadline) {
+                http.sendAsync(HttpRequest.newBuilder(URI.create(baseUrl + "/initialize")).GET().build(),
+                        HttpResponse.BodyHandlers.discarding());
+                Thread.sleep(Math.max(1, UPSTREAM_DELAY_MS / SLOW_JOBS));
+            }
+            return null;
+        });
+
+        List<Thread> crudClients = new ArrayList<>();
+        for (int c = 0; c < CRUD_CLIENTS; c++) {
+            long[] latencies = new long[1 << 16];
+            samples.add(latencies);
+            crudClients.add(Thread.ofVirtual().start(() -> {
+                int count = 0;
+                while (System.nanoTime() < deadline && count < latencies.length - 1) {
+                    String id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+                    HttpRequest request = ThreadLocalRandom.current().nextInt(10) < 8
+                            ? HttpRequest.newBuilder(URI.create(baseUrl + "/" + id)).GET().build()
+                            : jsonRequest(URI.create(baseUrl + "/" + id))
+                            .PUT(HttpRequest.BodyPublishers.ofString("{\"description\":\"updated\",\"status\":\"IN_PROGRESS\"}"))
+                            .build();
+                    long start = System.nanoTime();
+                    try {
+                        http.send(request, HttpResponse.BodyHandlers.discarding());
+                    } catch (IOException e) {
+                        continue;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    latencies[++count] = System.nanoTime() - start;
+                }
+                latencies[0] = count;
+            }));
+        }
+        for (Thread client : crudClients) {
+            client.join();
+        }
+        return LatencyResult.of(samples, duration);
+    }
+
+    private static HttpRequest.Builder jsonRequest(URI uri) {
+        return HttpRequest.newBuilder(uri).header("Content-Type", "application/json");
+    }
+
+    record LatencyResult(long requests, double throughputPerSecond, double p50Ms, double p99Ms, double maxMs) {
+
+        //Das erste Element jedes Arrays enthält die Anzahl der Messwerte
+        static LatencyResult of(List<long[]> samples, Duration duration) {
+            long[] all = samples.stream()
+                    .flatMapToLong(latencies -> Arrays.stream(latencies, 1, (int) latencies[0] + 1))
+                    .sorted()
+                    .toArray();
+            if (all.length == 0) {
+                return new LatencyResult(0, 0, 0, 0, 0);
+            }
+            return new LatencyResult(all.length,
+                    all.length / (double) duration.toSeconds(),
+                    percentile(all, 0.50),
+                    percentile(all, 0.99),
+                    all[all.length - 1] / 1_000_000.0);
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"requests\": %d, \"throughputPerSecond\": %.1f, \"p50Ms\": %.2f, \"p99Ms\": %.2f, \"maxMs\": %.2f}",
+                    requests, throughputPerSecond, p50Ms, p99Ms, maxMs);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package de.neuefische.todobackend.loadtest;
+
+import de.neuefische.todobackend.loadtest.TodoControllerLoadTest.Operation;
+import de.neuefische.todobackend.loadtest.TodoControllerLoadTest.OperationStats;
+import org.HdrHistogram.Histogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Schreibt das Ergebnis von TodoControllerLoadTest als report.json (zum Vergleichen zwischen Releases)
+ * und report.html (Tabelle plus Perzentil-Verteilung je Operation im .hgrm-Format von HdrHistogram).
+ */
+record LoadTestReport(double targetRate, String mix, long upstreamDelayMs, Duration duration,
+                      Map<Operation, OperationStats> results, List<String> violations) {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    void writeTo(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        String json = toJson();
+        Files.writeString(directory.resolve("report.json"), json);
+        Files.writeString(directory.resolve("report.html"), toHtml());
+        System.out.println(json);
+    }
+
+    private long totalRequests() {
+        return results.values().stream().mapToLong(stats -> stats.latencies().getTotalCount()).sum();
+    }
+
+    private double throughput(long requests) {
+        return requests / (double) duration.toSeconds();
+    }
+
+    String toJson() {
+        String operations = results.entrySet().stream()
+                .map(entry -> "    \"" + name(entry.getKey()) + "\": " + operationJson(entry.getValue()))
+                .collect(Collectors.joining(",\n"));
+        String violationList = violations.stream()
+                .map(violation -> "\"" + violation.replace("\"", "\\\"") + "\"")
+                .collect(Collectors.joining(", "));
+        return String.format(Locale.ROOT, """
+                {
+                  "targetRatePerSecond": %.1f,
+                  "mix": "%s",
+                  "upstreamDelayMs": %d,
+                  "durationSeconds": %d,
+                  "requests": %d,
+                  "throughputPerSecond": %.1f,
+                  "operations": {
+                %s
+                  },
+                  "violations": [%s]
+                }
+                """, targetRate, mix, upstreamDelayMs, duration.toSeconds(), totalRequests(),
+                throughput(totalRequests()), operations, violationList);
+    }
+
+    private String operationJson(OperationStats stats) {
+        Histogram latencies = stats.latencies();
+        StringBuilder json = new StringBuilder(String.format(Locale.ROOT,
+                "{\"requests\": %d, \"errors\": %d, \"throughputPerSecond\": %.1f",
+                latencies.getTotalCount(), stats.errors().sum(), throughput(latencies.getTotalCount())));
+        for (double percentile : PERCENTILES) {
+            json.append(String.format(Locale.ROOT, ", \"p%sMs\": %.2f", label(percentile), millis(latencies, percentile)));
+        }
+        json.append(String.format(Locale.ROOT, ", \"maxMs\": %.2f}", latencies.getMaxValue() / 1000.0));
+        return json.toString();
+    }
+
+    String toHtml() {
+        StringBuilder html = new StringBuilder("""
+                <!DOCTYPE html>
+                <html lang="de">
+                <head>
+                <meta charset="utf-8">
+                <title>Lasttest TodoController</title>
+                <style>
+                body { font-family: sans-serif; margin: 2em; }
+                table { border-collapse: collapse; }
+                th, td { border: 1px solid #ccc; padding: 4px 10px; text-align: right; }
+                th:first-child, td:first-child { text-align: left; }
+                .violation { color: #b00020; }
+                </style>
+                </head>
+                <body>
+                <h1>Lasttest TodoController</h1>
+                """);
+        html.append(String.format(Locale.ROOT,
+                "<p>Zielrate %.1f/s, erreicht %.1f/s, %d Anfragen in %d s, Mischung %s, OpenAI-Verzögerung %d ms</p>%n",
+                targetRate, throughput(totalRequests()), totalRequests(), duration.toSeconds(), escape(mix), upstreamDelayMs));
+        if (violations.isEmpty()) {
+            html.append("<p>Alle Grenzwerte eingehalten.</p>\n");
+        } else {
+            html.append("<ul class=\"violation\">\n");
+            violations.forEach(violation -> html.append("<li>").append(escape(violation)).append("</li>\n"));
+            html.append("</ul>\n");
+        }
+
+        html.append("<table>\n<tr><th>Operation</th><th>Anfragen</th><th>Fehler</th><th>Durchsatz/s</th>");
+        for (double percentile : PERCENTILES) {
+            html.append("<th>p").append(label(percentile)).append(" ms</th>");
+        }
+        html.append("<th>max ms</th></tr>\n");
+        results.forEach((operation, stats) -> {
+            Histogram latencies = stats.latencies();
+            html.append(String.format(Locale.ROOT, "<tr><td>%s</td><td>%d</td><td>%d</td><td>%.1f</td>",
+                    name(operation), latencies.getTotalCount(), stats.errors().sum(), throughput(latencies.getTotalCount())));
+            for (double percentile : PERCENTILES) {
+                html.append(String.format(Locale.ROOT, "<td>%.2f</td>", millis(latencies, percentile)));
+            }
+            html.append(String.format(Locale.ROOT, "<td>%.2f</td></tr>%n", latencies.getMaxValue() / 1000.0));
+        });
+        html.append("</table>\n");
+
+        //Kann z. B. mit dem HdrHistogram-Plotter (hdrhistogram.github.io/HdrHistogram/plotFiles.html) dargestellt werden
+        results.forEach((operation, stats) -> html.append("<details><summary>")
+                .append(name(operation))
+                .append(" (Perzentil-Verteilung in ms)</summary>\n<pre>")
+                .append(escape(percentileDistribution(stats.latencies())))
+                .append("</pre></details>\n"));
+        return html.append("</body>\n</html>\n").toString();
+    }
+
+    private static String percentileDistribution(Histogram latencies) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PrintStream printStream = new PrintStream(out, true, StandardCharsets.UTF_8)) {
+            //Werte sind in Mikrosekunden aufgezeichnet
+            latencies.outputPercentileDistribution(printStream, 1000.0);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static double millis(Histogram latencies, double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    //50 -> "50", 99.9 -> "999"
+    private static String label(double percentile) {
+        return percentile == Math.rint(percentile)
+                ? Integer.toString((int) percentile)
+                : Double.toString(percentile).replace(".", "");
+    }
+
+    private static String name(Operation operation) {
+        return operation.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
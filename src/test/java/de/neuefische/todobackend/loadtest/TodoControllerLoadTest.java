@@ -0,0 +1,346 @@
+package de.neuefische.todobackend.loadtest;
+
+import de.neuefische.todobackend.TodoBackendApplication;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lasttest für TodoController: startet die Anwendung mit embedded Mongo, OpenAI ist ein MockWebServer mit fester Verzögerung.
+ *
+ * Offenes Modell: Anfragen kommen mit der Zielrate (Poisson-Prozess), egal wie schnell die Anwendung antwortet.
+ * Die Latenz zählt ab dem geplanten Zeitpunkt, nicht ab dem tatsächlichen Senden, sonst würde ein Stau die Messwerte schönen
+ * (Coordinated Omission).
+ *
+ * Starten mit: mvn test -Ploadtest
+ * Einstellungen (-D...):
+ * - loadtest.rate: Anfragen pro Sekunde über alle Operationen (100)
+ * - loadtest.mix: Gewichte je Operation (get=50,list=10,post=15,put=15,delete=5,initialize=2)
+ * - loadtest.warmupSeconds / loadtest.durationSeconds (10 / 30), loadtest.upstreamDelayMs: Antwortzeit von OpenAI (200)
+ * - Grenzwerte: loadtest.maxP99Ms (250, je Operation z. B. loadtest.maxP99Ms.initialize=500),
+ *   loadtest.maxErrorRate (0.01), loadtest.minThroughputRatio (0.95, erreichter Durchsatz / Zielrate)
+ * - Properties der Anwendung ebenfalls über -D, z. B. -Dtodo.generation.max-concurrent-jobs=8
+ *   (mit den Standardwerten schaffen 2 Generierungs-Jobs nur wenige /initialize pro Sekunde, der Rest bekommt 429)
+ * - gegen eine echte Mongo statt der embedded: -Dloadtest.mongoUri=mongodb://localhost:27017/loadtest
+ * Ergebnis: target/loadtest/report.json und report.html (mit den Perzentil-Verteilungen aus HdrHistogram)
+ */
+@Tag("loadtest")
+class TodoControllerLoadTest {
+
+    private static final double RATE = Double.parseDouble(System.getProperty("loadtest.rate", "100"));
+    private static final String MIX = System.getProperty("loadtest.mix", "get=50,list=10,post=15,put=15,delete=5,initialize=2");
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadtest.warmupSeconds", 10));
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("loadtest.durationSeconds", 30));
+    private static final long UPSTREAM_DELAY_MS = Long.getLong("loadtest.upstreamDelayMs", 200);
+    private static final int SEEDED_TODOS = Integer.getInteger("loadtest.seededTodos", 500);
+    private static final double MAX_P99_MS = Double.parseDouble(System.getProperty("loadtest.maxP99Ms", "250"));
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.maxErrorRate", "0.01"));
+    private static final double MIN_THROUGHPUT_RATIO = Double.parseDouble(System.getProperty("loadtest.minThroughputRatio", "0.95"));
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final int GENERATED_TODOS = 5;
+
+    enum Operation {
+        GET, LIST, POST, PUT, DELETE, INITIALIZE
+    }
+
+    record OperationStats(Histogram latencies, LongAdder errors) {
+
+        OperationStats() {
+            //Mikrosekunden, 3 signifikante Stellen, wächst bei Bedarf mit
+            this(new ConcurrentHistogram(3), new LongAdder());
+        }
+    }
+
+    //Für eindeutige Beschreibungen und Themen über Warmup und Messung hinweg
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Test
+    void loadTest_shouldStayWithinLatencyErrorAndThroughputThresholds_whenDrivenAtTargetRate() throws Exception {
+        Map<Operation, Integer> mix = parseMix(MIX);
+        MockWebServer upstream = openAiStandIn();
+        ConfigurableApplicationContext app = null;
+        try {
+            app = new SpringApplicationBuilder(TodoBackendApplication.class)
+                    .properties(applicationProperties(upstream))
+                    .run();
+            String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port") + "/api/todo";
+            try (HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+                IdPool ids = new IdPool();
+                for (int i = 0; i < SEEDED_TODOS; i++) {
+                    ids.add(idOf(http.send(post(baseUrl, "Lasttest " + i), HttpResponse.BodyHandlers.ofString()).body()));
+                }
+
+                drive(http, baseUrl, ids, mix, WARMUP);
+                Map<Operation, OperationStats> results = drive(http, baseUrl, ids, mix, MEASUREMENT);
+
+                List<String> violations = violations(results);
+                Path directory = Path.of("target", "loadtest");
+                new LoadTestReport(RATE, MIX, UPSTREAM_DELAY_MS, MEASUREMENT, results, violations).writeTo(directory);
+                assertTrue(violations.isEmpty(), "Load test thresholds exceeded, see " + directory.resolve("report.html")
+                        + ":\n" + String.join("\n", violations));
+            }
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+            upstream.shutdown();
+        }
+    }
+
+    private static String[] applicationProperties(MockWebServer upstream) {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "BASE_URL=" + upstream.url("/"),
+                "API_KEY=loadtest",
+                "logging.level.root=WARN"));
+        String mongoUri = System.getProperty("loadtest.mongoUri");
+        if (mongoUri != null) {
+            properties.add("spring.data.mongodb.uri=" + mongoUri);
+            properties.add("spring.autoconfigure.exclude=de.flapdoodle.embed.mongo.spring.autoconfigure.EmbeddedMongoAutoConfiguration");
+        }
+        return properties.toArray(String[]::new);
+    }
+
+    /*
+     * Schickt Anfragen bis zum Ende der Dauer, jede auf einem eigenen virtuellen Thread.
+     * Die Abstände sind exponentialverteilt, ist der Dispatcher im Verzug, wird ohne Pause nachgeholt.
+     */
+    private Map<Operation, OperationStats> drive(HttpClient http, String baseUrl, IdPool ids, Map<Operation, Integer> mix,
+                                                 Duration duration) {
+        Map<Operation, OperationStats> results = new EnumMap<>(Operation.class);
+        for (Operation operation : mix.keySet()) {
+            results.put(operation, new OperationStats());
+        }
+        Operation[] weighted = mix.entrySet().stream()
+                .flatMap(entry -> IntStream.range(0, entry.getValue()).mapToObj(i -> entry.getKey()))
+                .toArray(Operation[]::new);
+        Random random = new Random(42);
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            long end = System.nanoTime() + duration.toNanos();
+            long next = System.nanoTime();
+            while (true) {
+                next += (long) (-Math.log(1 - random.nextDouble()) / RATE * 1_000_000_000L);
+                if (next >= end) {
+                    break;
+                }
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                long intendedStart = next;
+                Operation operation = weighted[random.nextInt(weighted.length)];
+                clients.submit(() -> execute(http, baseUrl, ids, operation, sequence.incrementAndGet(),
+                        intendedStart, results.get(operation)));
+            }
+        }
+        return results;
+    }
+
+    private void execute(HttpClient http, String baseUrl, IdPool ids, Operation operation, long sequence,
+                         long intendedStart, OperationStats stats) {
+        HttpRequest request = request(baseUrl, ids, operation, sequence);
+        boolean success = false;
+        try {
+            if (request != null) {
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                success = response.statusCode() / 100 == 2;
+                if (success && operation == Operation.POST) {
+                    ids.add(idOf(response.body()));
+                }
+            }
+        } catch (IOException e) {
+            //zählt als Fehler
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stats.latencies().recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart));
+        if (!success) {
+            stats.errors().increment();
+        }
+    }
+
+    //null, wenn kein Todo mehr zum Lesen, Ändern oder Löschen da ist
+    private static HttpRequest request(String baseUrl, IdPool ids, Operation operation, long sequence) {
+        return switch (operation) {
+            case GET -> {
+                String id = ids.random();
+                yield id == null ? null : builder(baseUrl + "/" + id).GET().build();
+            }
+            case LIST -> builder(baseUrl + "?limit=50").GET().build();
+            case POST -> post(baseUrl, "Lasttest neu " + sequence);
+            case PUT -> {
+                String id = ids.random();
+                yield id == null ? null : builder(baseUrl + "/" + id)
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(
+                                "{\"description\":\"Lasttest geändert " + sequence + "\",\"status\":\"IN_PROGRESS\"}"))
+                        .build();
+            }
+            case DELETE -> {
+                String id = ids.removeRandom();
+                yield id == null ? null : builder(baseUrl + "/" + id).DELETE().build();
+            }
+            //Jedes Thema nur einmal und ohne Cache, damit jeder Job wirklich bei OpenAI landet
+            case INITIALIZE -> builder(baseUrl + "/initialize?topic=Lasttest%20" + sequence
+                    + "&count=" + GENERATED_TODOS + "&bypassCache=true").GET().build();
+        };
+    }
+
+    private static HttpRequest post(String baseUrl, String description) {
+        return builder(baseUrl)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"description\":\"" + description + "\",\"status\":\"OPEN\"}"))
+                .build();
+    }
+
+    private static HttpRequest.Builder builder(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(REQUEST_TIMEOUT);
+    }
+
+    private static String idOf(String todoJson) {
+        int start = todoJson.indexOf("\"id\":\"") + 6;
+        return todoJson.substring(start, todoJson.indexOf('"', start));
+    }
+
+    private static List<String> violations(Map<Operation, OperationStats> results) {
+        List<String> violations = new ArrayList<>();
+        long requests = 0;
+        for (Map.Entry<Operation, OperationStats> entry : results.entrySet()) {
+            String name = entry.getKey().name().toLowerCase(Locale.ROOT);
+            Histogram latencies = entry.getValue().latencies();
+            long count = latencies.getTotalCount();
+            requests += count;
+            if (count == 0) {
+                continue;
+            }
+            double maxP99Ms = Double.parseDouble(System.getProperty("loadtest.maxP99Ms." + name, Double.toString(MAX_P99_MS)));
+            double p99Ms = latencies.getValueAtPercentile(99) / 1000.0;
+            if (p99Ms > maxP99Ms) {
+                violations.add(String.format(Locale.ROOT, "%s: p99 %.1f ms > %.1f ms", name, p99Ms, maxP99Ms));
+            }
+            double errorRate = entry.getValue().errors().sum() / (double) count;
+            if (errorRate > MAX_ERROR_RATE) {
+                violations.add(String.format(Locale.ROOT, "%s: error rate %.4f > %.4f", name, errorRate, MAX_ERROR_RATE));
+            }
+        }
+        double throughput = requests / (double) MEASUREMENT.toSeconds();
+        if (throughput < RATE * MIN_THROUGHPUT_RATIO) {
+            violations.add(String.format(Locale.ROOT, "throughput %.1f/s < %.1f/s (%.0f%% of target rate %.1f/s)",
+                    throughput, RATE * MIN_THROUGHPUT_RATIO, MIN_THROUGHPUT_RATIO * 100, RATE));
+        }
+        return violations;
+    }
+
+    //"get=50,post=15" -> {GET=50, POST=15}, Operationen mit Gewicht 0 fallen weg
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] keyValue = part.split("=");
+            int weight = Integer.parseInt(keyValue[1].strip());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(keyValue[0].strip().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no operation with a weight above 0: " + mix);
+        }
+        return weights;
+    }
+
+    /*
+     * Antwortet nach UPSTREAM_DELAY_MS mit GENERATED_TODOS Zeilen, gestreamt (SSE) oder am Stück,
+     * je nachdem, was die Anwendung anfragt (todo.generation.stream).
+     */
+    private static MockWebServer openAiStandIn() throws IOException {
+        List<String> lines = IntStream.rangeClosed(1, GENERATED_TODOS)
+                .mapToObj(i -> i + ". Lasttest-Todo " + i + "\\n")
+                .toList();
+        String events = lines.stream()
+                .map(line -> "data: {\"id\":\"chatcmpl-loadtest\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + line + "\"}}]}\n\n")
+                .collect(Collectors.joining())
+                + "data: [DONE]\n\n";
+        String completion = """
+                {
+                    "id": "chatcmpl-loadtest",
+                    "choices": [
+                        {
+                            "index": 0,
+                            "message": {"role": "assistant", "content": "%s"}
+                        }
+                    ]
+                }
+                """.formatted(String.join("", lines));
+
+        MockWebServer upstream = new MockWebServer();
+        upstream.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                boolean stream = request.getBody().readUtf8().contains("\"stream\":true");
+                return new MockResponse()
+                        .addHeader("Content-Type", stream ? "text/event-stream" : "application/json")
+                        .setHeadersDelay(UPSTREAM_DELAY_MS, TimeUnit.MILLISECONDS)
+                        .setBody(stream ? events : completion);
+            }
+        });
+        upstream.start();
+        return upstream;
+    }
+
+    //Ids der vorhandenen Todos, DELETE nimmt sein Todo heraus, bevor der Request rausgeht
+    private static final class IdPool {
+
+        private final List<String> ids = new ArrayList<>();
+
+        synchronized void add(String id) {
+            ids.add(id);
+        }
+
+        synchronized String random() {
+            return ids.isEmpty() ? null : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        }
+
+        synchronized String removeRandom() {
+            if (ids.isEmpty()) {
+                return null;
+            }
+            int index = ThreadLocalRandom.current().nextInt(ids.size());
+            String id = ids.get(index);
+            ids.set(index, ids.get(ids.size() - 1));
+            ids.remove(ids.size() - 1);
+            return id;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package de.neuefische.todobackend.todo;
+
+import de.neuefische.todobackend.service.IdService;
+import de.neuefische.todobackend.service.IdStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdServiceTest {
+
+    @Test
+    void randomId_shouldReturnUuidV4_whenStrategyIsRandomUuid() {
+        //GIVEN
+        IdService idService = new IdService(IdStrategy.RANDOM_UUID);
+
+        //WHEN
+        String actual = idService.randomId();
+
+        //THEN
+        assertEquals(4, UUID.fromString(actual).version());
+    }
+
+    @Test
+    void randomId_shouldReturnStrictlyIncreasingUuidV7_whenCalledRepeatedly() {
+        //GIVEN
+        IdService idService = new IdService(IdStrategy.UUID_V7);
+
+        //WHEN
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(idService.randomId());
+        }
+
+        //THEN
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+        }
+        assertEquals(7, UUID.fromString(ids.get(0)).version());
+        assertEquals(2, UUID.fromString(ids.get(0)).variant());
+    }
+
+    @Test
+    void randomId_shouldReturnUniqueIdsInOrderPerThread_whenCalledConcurrently() throws InterruptedException {
+        //GIVEN
+        IdService idService = new IdService(IdStrategy.UUID_V7);
+        Set<String> allIds = ConcurrentHashMap.newKeySet();
+        Set<Boolean> ordered = ConcurrentHashMap.newKeySet();
+
+        //WHEN
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                String previous = "";
+                for (int i = 0; i < 10_000; i++) {
+                    String id = idService.randomId();
+                    ordered.add(previous.compareTo(id) < 0);
+                    allIds.add(id);
+                    previous = id;
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        //THEN
+        assertEquals(80_000, allIds.size());
+        assertEquals(new HashSet<>(List.of(true)), ordered);
+    }
+}
@@ -0,0 +1,228 @@
+package de.neuefische.todobackend.todo;
+
+import de.neuefische.todobackend.dto.BulkItemResult;
+import de.neuefische.todobackend.dto.BulkOperation;
+import de.neuefische.todobackend.dto.BulkOperationType;
+import de.neuefische.todobackend.dto.TodoEvent;
+import de.neuefische.todobackend.dto.TodoGenerationRequest;
+import de.neuefische.todobackend.dto.TodoPage;
+import de.neuefische.todobackend.dto.TodoWOId;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import de.neuefische.todobackend.model.openAi.OpenAiResponse;
+import de.neuefische.todobackend.service.IdService;
+import de.neuefische.todobackend.service.IdStrategy;
+import de.neuefische.todobackend.service.InMemoryTodoService;
+import de.neuefische.todobackend.service.OpenAiClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+class InMemoryTodoServiceTest {
+
+    @TempDir
+    Path journalDirectory;
+
+    IdService idService = new IdService(IdStrategy.UUID_V7);
+    ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    List<InMemoryTodoService> services = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        services.forEach(InMemoryTodoService::shutdown);
+    }
+
+    @Test
+    void findTodosAfter_shouldPageByStatusAndKeepCounts_whenTodosChangeStatus() {
+        //GIVEN
+        InMemoryTodoService todoService = start();
+        Todo t1 = todoService.addTodo(new TodoWOId("d1", TodoStatus.OPEN));
+        Todo t2 = todoService.addTodo(new TodoWOId("d2", TodoStatus.OPEN));
+        Todo t3 = todoService.addTodo(new TodoWOId("d3", TodoStatus.OPEN));
+        todoService.updateTodo(new TodoWOId("d2", TodoStatus.DONE), t2.id(), null);
+
+        //WHEN
+        TodoPage firstPage = todoService.findTodosAfter(TodoStatus.OPEN, null, 1);
+        TodoPage secondPage = todoService.findTodosAfter(TodoStatus.OPEN, firstPage.nextCursor(), 1);
+
+        //THEN
+        assertEquals(List.of(t1), firstPage.todos());
+        assertEquals(List.of(t3), secondPage.todos());
+        assertNull(secondPage.nextCursor());
+        assertEquals(Map.of(TodoStatus.OPEN, 2L, TodoStatus.IN_PROGRESS, 0L, TodoStatus.DONE, 1L), todoService.getStatusCounts());
+    }
+
+    @Test
+    void updateTodo_shouldThrowOptimisticLockingFailure_whenVersionIsStale() {
+        //GIVEN
+        InMemoryTodoService todoService = start();
+        Todo todo = todoService.addTodo(new TodoWOId("d1", TodoStatus.OPEN));
+        Todo updated = todoService.updateTodo(new TodoWOId("d1", TodoStatus.DONE), todo.id(), List.of(0L));
+
+        //WHEN & THEN
+        assertEquals(1L, updated.version());
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> todoService.updateTodo(new TodoWOId("d1", TodoStatus.OPEN), todo.id(), List.of(0L)));
+        assertEquals(updated, todoService.findTodoById(todo.id()));
+    }
+
+    @Test
+    void applyBulk_shouldReportInvalidOperations_whenMixedWithValidOnes() {
+        //GIVEN
+        InMemoryTodoService todoService = start();
+        Todo existing = todoService.addTodo(new TodoWOId("d1", TodoStatus.OPEN));
+        List<BulkOperation> operations = new ArrayList<>();
+        operations.add(new BulkOperation(BulkOperationType.CREATE, null, new TodoWOId("neu", TodoStatus.OPEN)));
+        operations.add(new BulkOperation(BulkOperationType.UPDATE, null, new TodoWOId("d1", TodoStatus.DONE)));
+        operations.add(new BulkOperation(BulkOperationType.DELETE, existing.id(), null));
+
+        //WHEN
+        List<BulkItemResult> results = todoService.applyBulk(operations);
+
+        //THEN
+        assertEquals(List.of(200, 400, 200), results.stream().map(BulkItemResult::status).toList());
+        assertEquals(List.of("neu"), todoService.findAllTodos().stream().map(Todo::description).toList());
+    }
+
+    @Test
+    void applyBulk_shouldPublishDeletedOnlyForRemovedTodos_whenDeletingUnknownId() {
+        //GIVEN
+        InMemoryTodoService todoService = start();
+        Todo existing = todoService.addTodo(new TodoWOId("d1", TodoStatus.OPEN));
+
+        //WHEN
+        List<BulkItemResult> results = todoService.applyBulk(List.of(
+                new BulkOperation(BulkOperationType.DELETE, existing.id(), null),
+                new BulkOperation(BulkOperationType.DELETE, "unknown", null)));
+
+        //THEN
+        assertEquals(List.of(200, 200), results.stream().map(BulkItemResult::status).toList());
+        verify(eventPublisher).publishEvent(TodoEvent.deleted(existing.id()));
+        verify(eventPublisher, never()).publishEvent(TodoEvent.deleted("unknown"));
+    }
+
+    @Test
+    void replay_shouldRestoreTodos_whenRestartedWithSameJournal() {
+        //GIVEN
+        InMemoryTodoService todoService = start();
+        Todo kept = todoService.addTodo(new TodoWOId("Fenster putzen", TodoStatus.OPEN));
+        Todo deleted = todoService.addTodo(new TodoWOId("Staubsaugen", TodoStatus.OPEN));
+        Todo updated = todoService.updateTodo(new TodoWOId("Fenster putzen", TodoStatus.DONE), kept.id(), null);
+        todoService.deleteTodo(deleted.id());
+        todoService.shutdown();
+
+        //WHEN
+        InMemoryTodoService restarted = start();
+
+        //THEN
+        assertEquals(List.of(updated), restarted.findAllTodos());
+        assertThrows(NoSuchElementException.class, () -> restarted.findTodoById(deleted.id()));
+        assertEquals(1L, restarted.getStatusCounts().get(TodoStatus.DONE));
+    }
+
+    @Test
+    void compact_shouldKeepTodosAndRemoveOldJournal_whenChangedAfterwards() throws IOException {
+        //GIVEN
+        InMemoryTodoService todoService = start();
+        for (int i = 0; i < 100; i++) {
+            todoService.addTodo(new TodoWOId("Todo " + i, TodoStatus.OPEN));
+        }
+        todoService.compact();
+        Todo afterCompaction = todoService.addTodo(new TodoWOId("danach", TodoStatus.IN_PROGRESS));
+        List<Todo> expected = todoService.findAllTodos();
+        todoService.shutdown();
+
+        //WHEN
+        InMemoryTodoService restarted = start();
+
+        //THEN
+        assertEquals(expected, restarted.findAllTodos());
+        assertEquals(afterCompaction, restarted.findTodoById(afterCompaction.id()));
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            assertEquals(List.of("journal-1.log", "snapshot-1.dat"),
+                    files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+    }
+
+    @Test
+    void replay_shouldIgnoreTornRecord_whenJournalEndsWithGarbage() throws IOException {
+        //GIVEN
+        InMemoryTodoService todoService = start();
+        Todo todo = todoService.addTodo(new TodoWOId("d1", TodoStatus.OPEN));
+        todoService.shutdown();
+        Path journal = journalDirectory.resolve("journal-0.log");
+        //Länge und Prüfsumme eines Records, dessen Inhalt nicht mehr geschrieben wurde
+        byte[] bytes = Files.readAllBytes(journal);
+        int end = 8 + ByteBuffer.wrap(bytes).getInt();
+        try (var channel = Files.newByteChannel(journal, StandardOpenOption.WRITE)) {
+            channel.position(end).write(ByteBuffer.allocate(8).putInt(40).putInt(12345).flip());
+        }
+
+        //WHEN
+        InMemoryTodoService restarted = start();
+        Todo added = restarted.addTodo(new TodoWOId("d2", TodoStatus.OPEN));
+        restarted.shutdown();
+
+        //THEN
+        assertEquals(List.of(todo, added), start().findAllTodos());
+    }
+
+    @Test
+    void generateStackOfTodos_shouldSaveEachTodo_whenItsLineIsComplete() {
+        //GIVEN
+        OpenAiClient openAiClient = mock(OpenAiClient.class);
+        InMemoryTodoService todoService = start(openAiClient);
+        List<Integer> savedWhileStreaming = new ArrayList<>();
+        doAnswer(invocation -> {
+            Consumer<String> onContent = invocation.getArgument(2);
+            onContent.accept("1. Staubsaugen\n2. Fen");
+            savedWhileStreaming.add(todoService.findAllTodos().size());
+            onContent.accept("ster putzen");
+            savedWhileStreaming.add(todoService.findAllTodos().size());
+            return new OpenAiResponse();
+        }).when(openAiClient).chatStream(any(), anyBoolean(), any());
+        List<Todo> progress = new ArrayList<>();
+
+        //WHEN
+        List<Todo> actual = todoService.generateStackOfTodos(new TodoGenerationRequest("Haushalt", 5, false), progress::add);
+
+        //THEN
+        assertEquals(List.of(1, 1), savedWhileStreaming);
+        assertEquals(List.of("Staubsaugen", "Fenster putzen"), actual.stream().map(Todo::description).toList());
+        assertEquals(actual, progress);
+        assertEquals(actual, todoService.findAllTodos());
+    }
+
+    private InMemoryTodoService start() {
+        return start(mock(OpenAiClient.class));
+    }
+
+    private InMemoryTodoService start(OpenAiClient openAiClient) {
+        InMemoryTodoService todoService = new InMemoryTodoService(idService, openAiClient,
+                eventPublisher, true, true, journalDirectory, DataSize.ofKilobytes(4),
+                100_000, Duration.ofHours(1), Duration.ofHours(1));
+        services.add(todoService);
+        return todoService;
+    }
+}
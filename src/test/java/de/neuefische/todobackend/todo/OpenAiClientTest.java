@@ -0,0 +1,269 @@
+package de.neuefische.todobackend.todo;
+
+import de.neuefische.todobackend.cache.OpenAiResponseCache;
+import de.neuefische.todobackend.exception.OpenAiUnavailableException;
+import de.neuefische.todobackend.model.openAi.OpenAiRequest;
+import de.neuefische.todobackend.model.openAi.OpenAiResponse;
+import de.neuefische.todobackend.service.OpenAiClient;
+import de.neuefische.todobackend.service.TodoListParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OpenAiClientTest {
+
+    private static final String ANSWER = """
+            {
+                "id": "chatcmpl-test",
+                "choices": [
+                    {
+                        "index": 0,
+                        "message": {"role": "assistant", "content": "1. Staubsaugen"}
+                    }
+                ]
+            }
+            """;
+
+    MockWebServer mockWebServer = new MockWebServer();
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    OpenAiClient openAiClient;
+
+    @BeforeEach
+    void setup() throws IOException {
+        mockWebServer.start();
+    }
+
+    @AfterEach
+    void shutDown() throws IOException {
+        openAiClient.close();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void chat_shouldFailFast_whenOpenAiAnswersSlowerThanReadTimeout() {
+        //GIVEN
+        openAiClient = client(Duration.ofMillis(200), 10, 5, Duration.ofSeconds(30));
+        mockWebServer.enqueue(answer().setHeadersDelay(2, TimeUnit.SECONDS));
+
+        //WHEN
+        long start = System.nanoTime();
+        assertThrows(ResourceAccessException.class, () -> openAiClient.chat(new OpenAiRequest("Test")));
+
+        //THEN
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1500);
+    }
+
+    @Test
+    void chat_shouldRejectCall_whenBulkheadIsFull() throws Exception {
+        //GIVEN
+        openAiClient = client(Duration.ofSeconds(5), 2, 5, Duration.ofSeconds(30));
+        for (int i = 0; i < 2; i++) {
+            mockWebServer.enqueue(answer().setHeadersDelay(1, TimeUnit.SECONDS));
+        }
+        CompletableFuture<?> first = CompletableFuture.runAsync(() -> openAiClient.chat(new OpenAiRequest("Test 1")));
+        CompletableFuture<?> second = CompletableFuture.runAsync(() -> openAiClient.chat(new OpenAiRequest("Test 2")));
+        while (mockWebServer.getRequestCount() < 2) {
+            Thread.sleep(10);
+        }
+
+        //WHEN & THEN
+        assertThrows(OpenAiUnavailableException.class, () -> openAiClient.chat(new OpenAiRequest("Test 3")));
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(2, mockWebServer.getRequestCount());
+        assertEquals(1, meterRegistry.counter("openai.rejected", "reason", "bulkhead").count());
+    }
+
+    @Test
+    void chat_shouldOpenCircuitAndRecover_whenOpenAiFailsRepeatedly() throws Exception {
+        //GIVEN
+        openAiClient = client(Duration.ofSeconds(5), 10, 2, Duration.ofMillis(300));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        assertThrows(HttpServerErrorException.class, () -> openAiClient.chat(new OpenAiRequest("Test")));
+        assertThrows(HttpServerErrorException.class, () -> openAiClient.chat(new OpenAiRequest("Test")));
+
+        //WHEN & THEN
+        assertThrows(OpenAiUnavailableException.class, () -> openAiClient.chat(new OpenAiRequest("Test")));
+        assertEquals(2, mockWebServer.getRequestCount());
+        assertEquals(2, meterRegistry.get("openai.circuit.state").gauge().value());
+
+        Thread.sleep(400);
+        mockWebServer.enqueue(answer());
+        assertEquals("1. Staubsaugen", openAiClient.chat(new OpenAiRequest("Test")).getAnswer());
+        assertEquals(0, meterRegistry.get("openai.circuit.state").gauge().value());
+    }
+
+    @Test
+    void chat_shouldKeepCircuitOpen_whenCallStartedBeforeOpeningSucceedsLater() throws Exception {
+        //GIVEN
+        openAiClient = client(Duration.ofSeconds(5), 10, 1, Duration.ofSeconds(30));
+        mockWebServer.enqueue(answer().setHeadersDelay(1, TimeUnit.SECONDS));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        CompletableFuture<OpenAiResponse> slow = CompletableFuture.supplyAsync(() -> openAiClient.chat(new OpenAiRequest("Slow")));
+        while (mockWebServer.getRequestCount() < 1) {
+            Thread.sleep(10);
+        }
+        assertThrows(HttpServerErrorException.class, () -> openAiClient.chat(new OpenAiRequest("Test")));
+        assertEquals(2, meterRegistry.get("openai.circuit.state").gauge().value());
+
+        //WHEN
+        assertEquals("1. Staubsaugen", slow.get(5, TimeUnit.SECONDS).getAnswer());
+
+        //THEN
+        assertEquals(2, meterRegistry.get("openai.circuit.state").gauge().value());
+        assertThrows(OpenAiUnavailableException.class, () -> openAiClient.chat(new OpenAiRequest("Test 2")));
+        assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+    @Test
+    void chatStream_shouldNotOpenCircuit_whenConsumerFails() {
+        //GIVEN
+        openAiClient = client(Duration.ofSeconds(5), 10, 1, Duration.ofSeconds(30));
+        mockWebServer.enqueue(answer());
+        ResourceAccessException saveFailed = new ResourceAccessException("save failed");
+
+        //WHEN
+        ResourceAccessException actual = assertThrows(ResourceAccessException.class,
+                () -> openAiClient.chatStream(new OpenAiRequest("Test"), false, content -> {
+                    throw saveFailed;
+                }));
+
+        //THEN
+        assertSame(saveFailed, actual);
+        assertEquals(0, meterRegistry.get("openai.circuit.state").gauge().value());
+        assertNull(meterRegistry.find("openai.errors").counter());
+        mockWebServer.enqueue(answer());
+        assertEquals("1. Staubsaugen", openAiClient.chat(new OpenAiRequest("Test")).getAnswer());
+    }
+
+    @Test
+    void chat_shouldReleaseHalfOpenProbe_whenProbeThrowsError() throws Exception {
+        //GIVEN
+        openAiClient = client(Duration.ofSeconds(5), 10, 1, Duration.ofMillis(300));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        assertThrows(HttpServerErrorException.class, () -> openAiClient.chat(new OpenAiRequest("Test")));
+        Thread.sleep(400);
+        mockWebServer.enqueue(answer());
+
+        //WHEN
+        assertThrows(StackOverflowError.class, () -> openAiClient.chatStream(new OpenAiRequest("Probe"), false, content -> {
+            throw new StackOverflowError();
+        }));
+
+        //THEN
+        mockWebServer.enqueue(answer());
+        assertEquals("1. Staubsaugen", openAiClient.chat(new OpenAiRequest("Test")).getAnswer());
+        assertEquals(0, meterRegistry.get("openai.circuit.state").gauge().value());
+    }
+
+    @Test
+    void chat_shouldShareOneUpstreamCall_whenIdenticalPromptsArriveConcurrently() throws Exception {
+        //GIVEN
+        openAiClient = client(Duration.ofSeconds(5), 10, 5, Duration.ofSeconds(30));
+        mockWebServer.enqueue(answer().setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        List<CompletableFuture<OpenAiResponse>> calls = new ArrayList<>();
+
+        //WHEN
+        for (int i = 0; i < 5; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> openAiClient.chat(new OpenAiRequest("Test"))));
+        }
+
+        //THEN
+        for (CompletableFuture<OpenAiResponse> call : calls) {
+            assertEquals("1. Staubsaugen", call.get(5, TimeUnit.SECONDS).getAnswer());
+        }
+        assertEquals(1, mockWebServer.getRequestCount());
+        assertEquals(4, meterRegistry.counter("openai.coalesced").count());
+        assertEquals(0, meterRegistry.get("openai.single-flight.in-flight").gauge().value());
+    }
+
+    @Test
+    void chatStream_shouldDeliverEachLineBeforeTheAnswerIsComplete_whenOpenAiStreamsChunks() throws Exception {
+        //GIVEN
+        openAiClient = client(Duration.ofSeconds(5), 10, 5, Duration.ofSeconds(30));
+        String events = Stream.of("1. Staub", "saugen\\n2) Fen", "ster putzen\\n3 - Wäsche", " waschen")
+                .map(content -> "data: {\"id\":\"chatcmpl-stream\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + content + "\"}}]}\n\n")
+                .collect(Collectors.joining())
+                + "data: {\"id\":\"chatcmpl-stream\",\"choices\":[],\"usage\":{\"prompt_tokens\":20,\"completion_tokens\":9,\"total_tokens\":29}}\n\n"
+                + "data: [DONE]\n\n";
+        //Jedes Event kommt als eigener Chunk und mit 300ms Abstand
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader("Content-Type", "text/event-stream")
+                .setChunkedBody(events, 16)
+                .throttleBody(110, 300, TimeUnit.MILLISECONDS));
+
+        List<String> descriptions = new ArrayList<>();
+        List<Long> arrivedAfterMillis = new ArrayList<>();
+        long start = System.nanoTime();
+        TodoListParser.Incremental parser = TodoListParser.incremental(10, description -> {
+            descriptions.add(description);
+            arrivedAfterMillis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        });
+
+        //WHEN
+        OpenAiResponse response = openAiClient.chatStream(new OpenAiRequest("Test"), false, parser);
+        parser.finish();
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        //THEN
+        assertEquals("1. Staubsaugen\n2) Fenster putzen\n3 - Wäsche waschen", response.getAnswer());
+        assertEquals(List.of("Staubsaugen", "Fenster putzen", "Wäsche waschen"), descriptions);
+        assertTrue(arrivedAfterMillis.get(0) < totalMillis - 500,
+                "first todo after " + arrivedAfterMillis.get(0) + "ms, whole answer after " + totalMillis + "ms");
+        assertEquals(9, meterRegistry.get("openai.tokens").tag("type", "completion").counter().count());
+
+        RecordedRequest sent = mockWebServer.takeRequest();
+        assertTrue(sent.getBody().readUtf8().contains("\"stream\":true"));
+    }
+
+    @Test
+    void chatStream_shouldPassWholeAnswer_whenServerIgnoresStreaming() {
+        //GIVEN
+        openAiClient = client(Duration.ofSeconds(5), 10, 5, Duration.ofSeconds(30));
+        mockWebServer.enqueue(answer());
+        List<String> chunks = new ArrayList<>();
+
+        //WHEN
+        openAiClient.chatStream(new OpenAiRequest("Test"), false, chunks::add);
+
+        //THEN
+        assertEquals(List.of("1. Staubsaugen"), chunks);
+    }
+
+    private OpenAiClient client(Duration readTimeout, int maxConcurrentCalls, int failureThreshold, Duration openDuration) {
+        return new OpenAiClient(mock(OpenAiResponseCache.class), RestClient.builder(), meterRegistry,
+                Jackson2ObjectMapperBuilder.json().build(),
+                mockWebServer.url("/").toString(), "test",
+                Duration.ofSeconds(1), readTimeout,
+                maxConcurrentCalls, Duration.ZERO,
+                failureThreshold, openDuration);
+    }
+
+    private static MockResponse answer() {
+        return new MockResponse()
+                .addHeader("Content-Type", "application/json")
+                .setBody(ANSWER);
+    }
+}
@@ -0,0 +1,125 @@
+package de.neuefische.todobackend.todo;
+
+import de.neuefische.todobackend.dto.TodoEvent;
+import de.neuefische.todobackend.model.Todo;
+import de.neuefische.todobackend.model.TodoStatus;
+import de.neuefische.todobackend.model.openAi.OpenAiChoice;
+import de.neuefische.todobackend.model.openAi.OpenAiMessage;
+import de.neuefische.todobackend.model.openAi.OpenAiRequest;
+import de.neuefische.todobackend.model.openAi.OpenAiResponse;
+import de.neuefische.todobackend.repository.TodoRepository;
+import de.neuefische.todobackend.service.OpenAiClient;
+import de.neuefische.todobackend.service.SpellCheckPipeline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SpellCheckPipelineTest {
+
+    TodoRepository todoRepository = mock(TodoRepository.class);
+    OpenAiClient openAiClient = mock(OpenAiClient.class);
+    ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SpellCheckPipeline pipeline;
+
+    @AfterEach
+    void shutdown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void submit_shouldCorrectWholeBatchWithOneRequest_whenBatchIsFull() {
+        //GIVEN
+        pipeline = pipeline(3, 10);
+        Todo t1 = new Todo("1", "Fenstr putzen", TodoStatus.OPEN, 0L);
+        Todo t2 = new Todo("2", "Staubsaugen", TodoStatus.OPEN, 0L);
+        Todo t3 = new Todo("3", "Einkaufn", TodoStatus.DONE, 0L);
+        when(openAiClient.chat(any())).thenReturn(answer("1. Fenster putzen\n2. Staubsaugen\n3. Einkaufen"));
+        Todo corrected1 = new Todo("1", "Fenster putzen", TodoStatus.OPEN, 1L);
+        when(todoRepository.updateDescriptionsIfVersion(any())).thenReturn(List.of(corrected1));
+
+        //WHEN
+        List.of(t1, t2, t3).forEach(pipeline::submit);
+
+        //THEN
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Todo>> changed = ArgumentCaptor.forClass(List.class);
+        verify(todoRepository, timeout(2000)).updateDescriptionsIfVersion(changed.capture());
+        assertEquals(List.of(new Todo("1", "Fenster putzen", TodoStatus.OPEN, 0L),
+                new Todo("3", "Einkaufen", TodoStatus.DONE, 0L)), changed.getValue());
+        verify(eventPublisher, timeout(2000)).publishEvent(TodoEvent.updated(corrected1));
+
+        ArgumentCaptor<OpenAiRequest> request = ArgumentCaptor.forClass(OpenAiRequest.class);
+        verify(openAiClient, times(1)).chat(request.capture());
+        String prompt = request.getValue().getMessages().get(0).getContent();
+        assertTrue(prompt.contains("1. Fenstr putzen\n2. Staubsaugen\n3. Einkaufn"));
+    }
+
+    @Test
+    void submit_shouldSkipSpellCheck_whenQueueIsFull() throws Exception {
+        //GIVEN
+        pipeline = pipeline(1, 1);
+        CountDownLatch checking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(openAiClient.chat(any())).thenAnswer(invocation -> {
+            checking.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return answer("1. Fenster putzen");
+        });
+
+        //WHEN
+        assertTrue(pipeline.submit(new Todo("1", "Fenster putzen", TodoStatus.OPEN, 0L)));
+        assertTrue(checking.await(2, TimeUnit.SECONDS));
+        boolean queued = pipeline.submit(new Todo("2", "Staubsaugen", TodoStatus.OPEN, 0L));
+        boolean dropped = pipeline.submit(new Todo("3", "Einkaufen", TodoStatus.OPEN, 0L));
+        release.countDown();
+
+        //THEN
+        assertTrue(queued);
+        assertFalse(dropped);
+        assertEquals(1, meterRegistry.counter("todo.spell-check.dropped").count());
+    }
+
+    @Test
+    void submit_shouldSkipTodo_whenDescriptionIsMissing() {
+        //GIVEN
+        pipeline = pipeline(1, 10);
+        when(openAiClient.chat(any())).thenReturn(answer("1. Fenster putzen"));
+
+        //WHEN
+        boolean withoutDescription = pipeline.submit(new Todo("1", null, TodoStatus.OPEN, 0L));
+        boolean blank = pipeline.submit(new Todo("2", " ", TodoStatus.OPEN, 0L));
+        pipeline.submit(new Todo("3", "Fenster putzen", TodoStatus.OPEN, 0L));
+
+        //THEN
+        assertFalse(withoutDescription);
+        assertFalse(blank);
+        assertEquals(0, meterRegistry.counter("todo.spell-check.dropped").count());
+        ArgumentCaptor<OpenAiRequest> request = ArgumentCaptor.forClass(OpenAiRequest.class);
+        verify(openAiClient, timeout(2000)).chat(request.capture());
+        assertTrue(request.getValue().getMessages().get(0).getContent().endsWith("1. Fenster putzen\n"));
+        assertEquals(0, meterRegistry.counter("todo.spell-check.failed").count());
+    }
+
+    private SpellCheckPipeline pipeline(int batchSize, int queueCapacity) {
+        return new SpellCheckPipeline(todoRepository, openAiClient, eventPublisher, new ConcurrentMapCacheManager(),
+                meterRegistry, true, batchSize, Duration.ofSeconds(10), queueCapacity, Duration.ZERO);
+    }
+
+    private static OpenAiResponse answer(String content) {
+        return new OpenAiResponse("chatcmpl-test", List.of(new OpenAiChoice(new OpenAiMessage("assistant", content))), null);
+    }
+}
@@ -1,8 +1,17 @@
 package de.neuefische.todobackend.todo;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.jayway.jsonpath.JsonPath;
+import de.neuefische.todobackend.dto.TodoWOId;
+import de.neuefische.todobackend.model.ArchivedTodo;
+import de.neuefische.todobackend.model.IdempotencyRecord;
 import de.neuefische.todobackend.model.Todo;
 import de.neuefische.todobackend.repository.TodoRepository;
 import de.neuefische.todobackend.model.TodoStatus;
+import de.neuefische.todobackend.service.IdempotencyStore;
+import de.neuefische.todobackend.service.TodoArchiver;
+import io.micrometer.core.instrument.MeterRegistry;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.AfterAll;
@@ -11,15 +20,36 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -34,6 +64,18 @@ class TodoControllerTest {
     @Autowired
     TodoRepository todoRepository;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    TodoArchiver todoArchiver;
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    @Autowired
+    IdempotencyStore idempotencyStore;
+
     private static MockWebServer mockWebServer;
 
     @BeforeAll
@@ -68,6 +110,249 @@ class TodoControllerTest {
 
     }
 
+    @Test
+    void getAllTodos_shouldReturnPageAndNextCursor_whenCalledWithLimit() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "d1", TodoStatus.OPEN));
+        todoRepository.save(new Todo("2", "d2", TodoStatus.OPEN));
+        todoRepository.save(new Todo("3", "d3", TodoStatus.OPEN));
+
+        //WHEN & THEN
+        mockMvc.perform(get("/api/todo").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "2"))
+                .andExpect(content().json("""
+                        [
+                            {"id": "1"},
+                            {"id": "2"}
+                        ]
+                        """));
+
+        mockMvc.perform(get("/api/todo").param("limit", "2").param("after", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(content().json("""
+                        [
+                            {"id": "3"}
+                        ]
+                        """));
+    }
+
+    @Test
+    void getAllTodos_shouldReturnStatus400_whenCalledWithInvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/todo").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllTodos_shouldReturnOnlyTodosWithStatus_whenCalledWithStatus() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "d1", TodoStatus.OPEN));
+        todoRepository.save(new Todo("2", "d2", TodoStatus.DONE));
+        todoRepository.save(new Todo("3", "d3", TodoStatus.DONE));
+        todoRepository.save(new Todo("4", "d4", TodoStatus.DONE));
+
+        //WHEN & THEN
+        mockMvc.perform(get("/api/todo").param("status", "DONE").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "3"))
+                .andExpect(content().json("""
+                        [
+                            {"id": "2", "description": "d2", "status": "DONE"},
+                            {"id": "3", "description": "d3", "status": "DONE"}
+                        ]
+                        """))
+                .andExpect(jsonPath("$.length()").value(2));
+
+        mockMvc.perform(get("/api/todo").param("status", "DONE").param("after", "3"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(content().json("""
+                        [
+                            {"id": "4", "description": "d4", "status": "DONE"}
+                        ]
+                        """))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        mockMvc.perform(get("/api/todo").param("status", "DONE").param("unpaged", "true"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchTodos_shouldReturnMatchingTodosRankedAndFiltered_whenCalledWithQuery() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "Fenster putzen", TodoStatus.OPEN));
+        todoRepository.save(new Todo("2", "Rasen mähen", TodoStatus.OPEN));
+        todoRepository.save(new Todo("3", "Fenster putzen und Fenster streichen", TodoStatus.DONE));
+        //$text braucht den Text-Index, nicht darauf verlassen, dass auto-index-creation schon durch ist
+        IndexResolver.create(mongoTemplate.getConverter().getMappingContext()).resolveIndexFor(Todo.class)
+                .forEach(mongoTemplate.indexOps(Todo.class)::ensureIndex);
+
+        //WHEN & THEN
+        mockMvc.perform(get("/api/todo/search").param("q", "fenster"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value("3"))
+                .andExpect(jsonPath("$[1].id").value("1"));
+
+        mockMvc.perform(get("/api/todo/search").param("q", "fenster").param("status", "OPEN"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        [
+                            {"id": "1", "description": "Fenster putzen", "status": "OPEN"}
+                        ]
+                        """));
+
+        mockMvc.perform(get("/api/todo/search").param("q", "fenster").param("limit", "1"))
+                .andExpect(header().string("X-Next-Cursor", "1"))
+                .andExpect(jsonPath("$[0].id").value("3"));
+    }
+
+    @Test
+    void searchTodos_shouldReturnStatus400_whenQueryIsBlank() throws Exception {
+        mockMvc.perform(get("/api/todo/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getStatusCounts_shouldCountTodosPerStatus_whenTodosAreChanged() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "d1", TodoStatus.OPEN));
+        todoRepository.save(new Todo("2", "d2", TodoStatus.OPEN));
+
+        mockMvc.perform(get("/api/todo/stats"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        {"OPEN": 2, "IN_PROGRESS": 0, "DONE": 0}
+                        """, true));
+
+        //WHEN
+        mockMvc.perform(post("/api/todo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "d3", "status": "IN_PROGRESS"}
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/todo/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "d1", "status": "DONE"}
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/todo/2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/todo/2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/todo/_bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [
+                                    {"type": "CREATE", "todo": {"description": "d4", "status": "OPEN"}},
+                                    {"type": "UPDATE", "id": "1", "todo": {"description": "d1", "status": "IN_PROGRESS"}},
+                                    {"type": "UPDATE", "id": "5", "todo": {"description": "d5", "status": "DONE"}}
+                                ]
+                                """))
+                .andExpect(status().isOk());
+
+        //THEN
+        mockMvc.perform(get("/api/todo/stats"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        {"OPEN": 1, "IN_PROGRESS": 2, "DONE": 1}
+                        """, true));
+    }
+
+    @Test
+    void bulkTodos_shouldApplyOperationsOnSameIdInOrderAndCountThem_whenCalled() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "d1", TodoStatus.OPEN));
+        mockMvc.perform(get("/api/todo/stats"))
+                .andExpect(content().json("""
+                        {"OPEN": 1, "IN_PROGRESS": 0, "DONE": 0}
+                        """, true));
+
+        //WHEN
+        mockMvc.perform(post("/api/todo/_bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [
+                                    {"type": "UPDATE", "id": "1", "todo": {"description": "d1", "status": "DONE"}},
+                                    {"type": "DELETE", "id": "1"},
+                                    {"type": "UPDATE", "id": "1", "todo": {"description": "d1 again", "status": "IN_PROGRESS"}},
+                                    {"type": "UPDATE", "id": "2", "todo": {"description": "d2", "status": "OPEN"}},
+                                    {"type": "UPDATE", "id": "2", "todo": {"description": "d2", "status": "DONE"}},
+                                    {"type": "DELETE", "id": "2"}
+                                ]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        [{"status": 200}, {"status": 200}, {"status": 200}, {"status": 200}, {"status": 200}, {"status": 200}]
+                        """));
+
+        //THEN
+        mockMvc.perform(get("/api/todo/1"))
+                .andExpect(content().json("""
+                        {"id": "1", "description": "d1 again", "status": "IN_PROGRESS"}
+                        """));
+        mockMvc.perform(get("/api/todo/2"))
+                .andExpect(status().isNotFound());
+        assertNull(mongoTemplate.findById("1", ArchivedTodo.class));
+        assertEquals("d2", mongoTemplate.findById("2", ArchivedTodo.class).description());
+        mockMvc.perform(get("/api/todo/stats"))
+                .andExpect(content().json("""
+                        {"OPEN": 0, "IN_PROGRESS": 1, "DONE": 0}
+                        """, true));
+    }
+
+    @Test
+    void getStatusCounts_shouldKeepIncrementsAndRepairDrift_whenCountersAreReconciled() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "d1", TodoStatus.OPEN));
+        //$inc bevor jemals gezählt wurde (vorher gingen sie ins Leere)
+        mockMvc.perform(post("/api/todo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "d2", "status": "DONE"}
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/todo/stats"))
+                .andExpect(content().json("""
+                        {"OPEN": 1, "IN_PROGRESS": 0, "DONE": 1}
+                        """, true));
+        //Abweichung wie nach einem Ausfall zwischen Schreiben und $inc
+        todoRepository.save(new Todo("3", "d3", TodoStatus.IN_PROGRESS));
+
+        //WHEN
+        todoRepository.reconcileStatusCounts();
+
+        //THEN
+        mockMvc.perform(get("/api/todo/stats"))
+                .andExpect(content().json("""
+                        {"OPEN": 1, "IN_PROGRESS": 1, "DONE": 1}
+                        """, true));
+    }
+
+    @Test
+    void exportTodos_shouldStreamAllTodosAsNdjson_whenCalled() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "d1", TodoStatus.OPEN));
+        todoRepository.save(new Todo("2", "d2", TodoStatus.DONE));
+
+        //WHEN
+        MvcResult result = mockMvc.perform(get("/api/todo/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //THEN
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("""
+                        {"id":"1","description":"d1","status":"OPEN","version":0}
+                        {"id":"2","description":"d2","status":"DONE","version":0}
+                        """));
+    }
+
     @Test
     void postTodo_shouldReturnNewTodoWithId_WhenCalledWithDto() throws Exception {
         //GIVEN
@@ -93,6 +378,144 @@ class TodoControllerTest {
                 .andExpect(jsonPath("$.id").isNotEmpty());
     }
 
+    @Test
+    void postTodo_shouldCreateTodoOnlyOnceAndReplayResponse_whenRetriedWithSameIdempotencyKey() throws Exception {
+        //GIVEN
+        String body = """
+                {"description": "test-description", "status": "OPEN"}
+                """;
+        String first = mockMvc.perform(post("/api/todo")
+                        .header("Idempotency-Key", "retry-key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn().getResponse().getContentAsString();
+
+        //WHEN
+        String retried = mockMvc.perform(post("/api/todo")
+                        .header("Idempotency-Key", "retry-key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                //THEN
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(first, retried);
+        assertEquals(1, todoRepository.count());
+        mockMvc.perform(post("/api/todo")
+                        .header("Idempotency-Key", "retry-key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "other-description", "status": "OPEN"}
+                                """))
+                .andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(post("/api/todo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk());
+        assertEquals(2, todoRepository.count());
+    }
+
+    @Test
+    void postTodo_shouldInsertOnlyOnce_whenConcurrentRequestsShareIdempotencyKey() throws Exception {
+        //GIVEN
+        int requests = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> responses = new ArrayList<>();
+
+        //WHEN
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/todo")
+                                    .header("Idempotency-Key", "concurrent-key")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content("""
+                                            {"description": "test-description", "status": "OPEN"}
+                                            """))
+                            .andExpect(status().isOk())
+                            .andReturn().getResponse().getContentAsString();
+                }));
+            }
+            start.countDown();
+        }
+
+        //THEN
+        String first = responses.get(0).get();
+        for (Future<String> response : responses) {
+            assertEquals(first, response.get());
+        }
+        assertEquals(1, todoRepository.count());
+    }
+
+    @Test
+    void idempotencyStore_shouldKeepNewOwnersClaim_whenKeyWasTakenOverWhileCreating() {
+        //GIVEN
+        TodoWOId request = new TodoWOId("test-description", TodoStatus.OPEN);
+
+        //WHEN
+        idempotencyStore.execute("taken-over-key", request, () -> {
+            //Eine andere Instanz übernimmt den Key nach pending-timeout, während dieser Request noch läuft
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is("taken-over-key")),
+                    Update.update("createdAt", Instant.now().plusSeconds(60)), IdempotencyRecord.class);
+            return new Todo("1", "test-description", TodoStatus.OPEN, 0L);
+        });
+
+        //THEN
+        IdempotencyRecord stored = mongoTemplate.findById("taken-over-key", IdempotencyRecord.class);
+        assertNotNull(stored);
+        assertFalse(stored.isCompleted());
+        assertEquals(1, meterRegistry.get("todo.idempotency.ownership-lost").counter().count());
+    }
+
+    @Test
+    void getStaticResources_shouldCacheHashedFilesForeverAndRevalidateIndex_whenRequested() throws Exception {
+        //WHEN & THEN
+        mockMvc.perform(get("/static/js/main.6d85980d.js"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"));
+
+        String etag = mockMvc.perform(get("/index.html"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=60, must-revalidate, public"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/index.html").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void postTodo_shouldReadAndWriteBinaryFormats_whenRequestedViaContentTypeAndAccept() throws Exception {
+        //GIVEN
+        CBORMapper cborMapper = new CBORMapper();
+        SmileMapper smileMapper = new SmileMapper();
+        byte[] body = cborMapper.writeValueAsBytes(new TodoWOId("test-description", TodoStatus.OPEN));
+
+        //WHEN
+        byte[] created = mockMvc.perform(post("/api/todo")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] all = mockMvc.perform(get("/api/todo").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        //THEN
+        Todo todo = cborMapper.readValue(created, Todo.class);
+        assertEquals("test-description", todo.description());
+        assertEquals(List.of(todo), List.of(smileMapper.readValue(all, Todo[].class)));
+        //Ohne Accept-Header bleibt es bei Json
+        mockMvc.perform(get("/api/todo"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].id").value(todo.id()));
+    }
+
     @Test
     void putTodo_shouldReturnUpdatedTodo_WhenCalledWithValidIdAndUpdatedInformation() throws Exception {
         //GIVEN
@@ -120,6 +543,180 @@ class TodoControllerTest {
                         """));
     }
 
+    @Test
+    void putTodo_shouldReturnStatus412_whenIfMatchDoesNotMatchCurrentVersion() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "test-description", TodoStatus.OPEN));
+        String etag = mockMvc.perform(get("/api/todo/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        //WHEN
+        String newEtag = mockMvc.perform(put("/api/todo/1")
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "first", "status": "IN_PROGRESS"}
+                                """))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        //THEN
+        assertNotEquals(etag, newEtag);
+        mockMvc.perform(put("/api/todo/1")
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "second", "status": "DONE"}
+                                """))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/api/todo/1"))
+                .andExpect(header().string("ETag", newEtag))
+                .andExpect(content().json("""
+                        {"id": "1", "description": "first", "status": "IN_PROGRESS"}
+                        """));
+    }
+
+    @Test
+    void putTodo_shouldUpdate_whenAnyETagOfMultiValueIfMatchMatches() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "test-description", TodoStatus.OPEN));
+        String etag = mockMvc.perform(get("/api/todo/1"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        //WHEN
+        mockMvc.perform(put("/api/todo/1")
+                        .header("If-Match", "\"41\", " + etag + ", W/" + etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "first", "status": "IN_PROGRESS"}
+                                """))
+                //THEN
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/todo/1")
+                        .header("If-Match", "\"41\", " + etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "second", "status": "DONE"}
+                                """))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/api/todo/1"))
+                .andExpect(jsonPath("$.description").value("first"));
+    }
+
+    @Test
+    void getById_shouldReturnStatus304_whenIfNoneMatchEqualsCurrentETag() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "test-description", TodoStatus.OPEN));
+        String etag = mockMvc.perform(get("/api/todo/1"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        //WHEN & THEN
+        mockMvc.perform(get("/api/todo/1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(put("/api/todo/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "changed", "status": "OPEN"}
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/todo/1").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("changed"));
+    }
+
+    @Test
+    void putTodo_shouldNotAcceptOldETags_whenTodoWasDeletedAndCreatedAgain() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "test-description", TodoStatus.OPEN));
+        String etag = mockMvc.perform(get("/api/todo/1"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(delete("/api/todo/1"))
+                .andExpect(status().is2xxSuccessful());
+
+        //WHEN
+        String newEtag = mockMvc.perform(put("/api/todo/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "new", "status": "OPEN"}
+                                """))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        //THEN
+        assertNotEquals(etag, newEtag);
+        mockMvc.perform(get("/api/todo/1").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("new"));
+        mockMvc.perform(put("/api/todo/1")
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "stale", "status": "DONE"}
+                                """))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/api/todo/1")
+                        .header("If-Match", newEtag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "current", "status": "DONE"}
+                                """))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getAllTodos_shouldReturnStatus304_whenPageHasNotChanged() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "d1", TodoStatus.OPEN));
+        String etag = mockMvc.perform(get("/api/todo"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        //WHEN & THEN
+        mockMvc.perform(get("/api/todo").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/api/todo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "d2", "status": "OPEN"}
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/todo").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void streamEvents_shouldPushCreateUpdateAndDelete_whenTodosAreChanged() throws Exception {
+        //GIVEN
+        MvcResult events = mockMvc.perform(get("/api/todo/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //WHEN
+        String body = mockMvc.perform(post("/api/todo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "test-description", "status": "OPEN"}
+                                """))
+                .andReturn().getResponse().getContentAsString();
+        String id = JsonPath.read(body, "$.id");
+        mockMvc.perform(put("/api/todo/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"description": "test-description", "status": "DONE"}
+                        """));
+        mockMvc.perform(delete("/api/todo/" + id));
+
+        //THEN
+        String stream = awaitEvents(events, 3);
+        assertTrue(stream.indexOf("event:CREATED") < stream.indexOf("event:UPDATED"), stream);
+        assertTrue(stream.indexOf("event:UPDATED") < stream.indexOf("event:DELETED"), stream);
+        assertTrue(stream.contains("\"status\":\"DONE\""), stream);
+    }
+
     @Test
     void getById_shouldReturnTodo_WhenCalledWithValidId() throws Exception {
         //GIVEN
@@ -140,6 +737,31 @@ class TodoControllerTest {
 
     }
 
+    @Test
+    void getById_shouldServeFromCacheAndRefreshOnPut_whenCalledRepeatedly() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "test-description", TodoStatus.OPEN));
+        mockMvc.perform(get("/api/todo/1"))
+                .andExpect(jsonPath("$.description").value("test-description"));
+
+        //WHEN
+        //Änderung am Service vorbei -> der Cache liefert weiterhin den alten Stand
+        todoRepository.save(new Todo("1", "changed-in-db", TodoStatus.OPEN, 0L));
+
+        //THEN
+        mockMvc.perform(get("/api/todo/1"))
+                .andExpect(jsonPath("$.description").value("test-description"));
+
+        mockMvc.perform(put("/api/todo/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "updated", "status": "DONE"}
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/todo/1"))
+                .andExpect(jsonPath("$.description").value("updated"));
+    }
+
     @Test
     void getByIdTest_shouldReturnStatus404_whenGivenInvalidId() throws Exception {
         //GIVEN
@@ -165,6 +787,166 @@ class TodoControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void deleteTodoById_shouldKeepTodoInArchiveUntilPurgedAndRestoreItOnPut_whenDeleted() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "test-description", TodoStatus.OPEN));
+
+        //WHEN
+        mockMvc.perform(delete("/api/todo/1"))
+                .andExpect(status().isOk());
+
+        //THEN
+        mockMvc.perform(get("/api/todo/1"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/todo/1").param("includeArchived", "true"))
+                .andExpect(status().isNotFound());
+        ArchivedTodo deleted = mongoTemplate.findById("1", ArchivedTodo.class);
+        assertNotNull(deleted);
+        assertNotNull(deleted.deletedAt());
+        assertEquals("test-description", deleted.description());
+
+        mockMvc.perform(put("/api/todo/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"description": "restored", "status": "OPEN"}
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/todo/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("restored"));
+        assertNull(mongoTemplate.findById("1", ArchivedTodo.class));
+    }
+
+    @Test
+    void getAllTodos_shouldReturnArchivedTodosOnlyWithIncludeArchived_whenDoneTodosWereArchived() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "d1", TodoStatus.OPEN));
+        todoRepository.save(new Todo("2", "d2", TodoStatus.DONE));
+        todoRepository.save(new Todo("3", "d3", TodoStatus.DONE));
+        todoRepository.save(new Todo("4", "d4", TodoStatus.IN_PROGRESS));
+
+        //WHEN
+        int archived = todoArchiver.archiveDoneTodos(Instant.now().plusSeconds(1));
+
+        //THEN
+        assertEquals(2, archived);
+        mockMvc.perform(get("/api/todo"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(content().json("""
+                        [{"id": "1"}, {"id": "4"}]
+                        """));
+        mockMvc.perform(get("/api/todo").param("includeArchived", "true").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "3"))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(content().json("""
+                        [{"id": "1"}, {"id": "2"}, {"id": "3", "description": "d3", "status": "DONE"}]
+                        """));
+        mockMvc.perform(get("/api/todo").param("includeArchived", "true").param("status", "DONE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(content().json("""
+                        [{"id": "2"}, {"id": "3"}]
+                        """));
+        mockMvc.perform(get("/api/todo/2"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/todo/2").param("includeArchived", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("d2"));
+        mockMvc.perform(get("/api/todo/stats"))
+                .andExpect(content().json("""
+                        {"OPEN": 1, "IN_PROGRESS": 1, "DONE": 0}
+                        """));
+    }
+
+    @Test
+    void archiveDoneTodos_shouldNotOverwriteSoftDeleteOrCountIt_whenTodoIsBeingDeleted() {
+        //GIVEN
+        todoRepository.save(new Todo("2", "d2", TodoStatus.DONE));
+        todoRepository.save(new Todo("3", "d3", TodoStatus.DONE));
+        //Ein DELETE auf "2" hat den Soft Delete schon geschrieben
+        Instant deletedAt = Instant.now().minusSeconds(60);
+        mongoTemplate.save(new ArchivedTodo("2", "d2", TodoStatus.DONE, 0L, deletedAt, deletedAt));
+
+        //WHEN
+        int archived = todoArchiver.archiveDoneTodos(Instant.now().plusSeconds(1));
+
+        //THEN
+        assertEquals(1, archived);
+        assertNotNull(mongoTemplate.findById("2", ArchivedTodo.class).deletedAt());
+        assertTrue(todoRepository.existsById("2"));
+        assertNull(mongoTemplate.findById("3", ArchivedTodo.class).deletedAt());
+        assertFalse(todoRepository.existsById("3"));
+    }
+
+    @Test
+    void bulkTodos_shouldSoftDeleteAndRestoreArchivedTodos_whenTheyWereArchived() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("2", "d2", TodoStatus.DONE));
+        todoRepository.save(new Todo("3", "d3", TodoStatus.DONE));
+        todoArchiver.archiveDoneTodos(Instant.now().plusSeconds(1));
+
+        //WHEN
+        mockMvc.perform(post("/api/todo/_bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [
+                                    {"type": "DELETE", "id": "2"},
+                                    {"type": "UPDATE", "id": "3", "todo": {"description": "d3 again", "status": "OPEN"}}
+                                ]
+                                """))
+                .andExpect(status().isOk());
+
+        //THEN
+        assertNotNull(mongoTemplate.findById("2", ArchivedTodo.class).deletedAt());
+        mockMvc.perform(get("/api/todo/2").param("includeArchived", "true"))
+                .andExpect(status().isNotFound());
+        assertNull(mongoTemplate.findById("3", ArchivedTodo.class));
+        mockMvc.perform(get("/api/todo").param("includeArchived", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].description").value("d3 again"));
+    }
+
+    @Test
+    void bulkTodos_shouldApplyAllOperationsAndReturnResultPerItem_whenCalled() throws Exception {
+        //GIVEN
+        todoRepository.save(new Todo("1", "test-description", TodoStatus.OPEN));
+        todoRepository.save(new Todo("2", "to-be-deleted", TodoStatus.OPEN));
+
+        //WHEN
+        mockMvc.perform(post("/api/todo/_bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [
+                                    {"type": "CREATE", "todo": {"description": "new", "status": "OPEN"}},
+                                    {"type": "UPDATE", "id": "1", "todo": {"description": "updated", "status": "DONE"}},
+                                    {"type": "DELETE", "id": "2"},
+                                    {"type": "UPDATE", "id": "3"}
+                                ]
+                                """))
+                //THEN
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        [
+                            {"index": 0, "type": "CREATE", "status": 200},
+                            {"index": 1, "type": "UPDATE", "id": "1", "status": 200},
+                            {"index": 2, "type": "DELETE", "id": "2", "status": 200},
+                            {"index": 3, "type": "UPDATE", "id": "3", "status": 400}
+                        ]
+                        """))
+                .andExpect(jsonPath("$[0].id").isNotEmpty());
+
+        mockMvc.perform(get("/api/todo/1"))
+                .andExpect(content().json("""
+                        {"id": "1", "description": "updated", "status": "DONE"}
+                        """));
+        mockMvc.perform(get("/api/todo/2"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void initializeTopics_shouldCallApiAndSafeNewTodos_whenCalled() throws Exception {
         //GIVEN
@@ -197,8 +979,16 @@ class TodoControllerTest {
                         """));
 
         //WHEN & THEN
-        mockMvc.perform(MockMvcRequestBuilders.get("/api/todo/initialize"))
-                .andExpect(status().isOk());
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/todo/initialize"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.topic").value("Haushalt"))
+                .andExpect(jsonPath("$.count").value(10))
+                .andReturn();
+
+        String jobId = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+        awaitGenerationJob(jobId)
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.created").value(10));
 
         mockMvc.perform(MockMvcRequestBuilders.get("/api/todo"))
                 .andExpect(status().isOk())
@@ -250,4 +1040,195 @@ class TodoControllerTest {
 
 
     }
+
+    @Test
+    void initializeTopics_shouldSendTopicAndCountToApi_whenCalledWithParameters() throws Exception {
+        //GIVEN
+        //Requests aus vorherigen Tests verwerfen, der MockWebServer lebt für die ganze Testklasse
+        while (mockWebServer.takeRequest(10, TimeUnit.MILLISECONDS) != null) {
+        }
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader("Content-Type", "application/json")
+                .setBody("""
+                        {
+                            "id": "chatcmpl-1",
+                            "choices": [
+                                {
+                                    "index": 0,
+                                    "message": {
+                                        "role": "assistant",
+                                        "content": "1. Rasen mähen\\n2. Hecke schneiden"
+                                    }
+                                }
+                            ]
+                        }
+                        """));
+
+        //WHEN
+        MvcResult result = mockMvc.perform(get("/api/todo/initialize")
+                        .param("topic", "Garten")
+                        .param("count", "2"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andReturn();
+
+        //THEN
+        String jobId = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+        awaitGenerationJob(jobId)
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.created").value(2));
+
+        String sentPrompt = mockWebServer.takeRequest().getBody().readUtf8();
+        assertTrue(sentPrompt.contains("Liste mit 2 todos für das Thema: Garten"));
+    }
+
+    @Test
+    void initializeTopics_shouldAnswerRepeatedPromptFromCache_whenCalledTwice() throws Exception {
+        //GIVEN
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader("Content-Type", "application/json")
+                .setBody("""
+                        {
+                            "id": "chatcmpl-2",
+                            "choices": [
+                                {
+                                    "index": 0,
+                                    "message": {
+                                        "role": "assistant",
+                                        "content": "1. Einkaufen\\n2. Kochen"
+                                    }
+                                }
+                            ]
+                        }
+                        """));
+        int requestsBefore = mockWebServer.getRequestCount();
+
+        //WHEN
+        for (int i = 0; i < 2; i++) {
+            MvcResult result = mockMvc.perform(get("/api/todo/initialize")
+                            .param("topic", "Küche")
+                            .param("count", "2"))
+                    .andExpect(status().isAccepted())
+                    .andReturn();
+            String jobId = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+            awaitGenerationJob(jobId)
+                    .andExpect(jsonPath("$.status").value("DONE"))
+                    .andExpect(jsonPath("$.created").value(2));
+        }
+
+        //THEN
+        assertEquals(1, mockWebServer.getRequestCount() - requestsBefore);
+        mockMvc.perform(get("/api/todo"))
+                .andExpect(jsonPath("$.length()").value(4));
+    }
+
+    @Test
+    void initializeTopics_shouldGenerateOnlyOnce_whenIdenticalRequestsArriveWhileJobIsRunning() throws Exception {
+        //GIVEN
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader("Content-Type", "application/json")
+                .setHeadersDelay(500, TimeUnit.MILLISECONDS)
+                .setBody("""
+                        {
+                            "id": "chatcmpl-3",
+                            "choices": [
+                                {
+                                    "index": 0,
+                                    "message": {"role": "assistant", "content": "1. Blumen gießen\\n2. Unkraut jäten"}
+                                }
+                            ]
+                        }
+                        """));
+        int requestsBefore = mockWebServer.getRequestCount();
+
+        //WHEN
+        List<String> jobIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            MvcResult result = mockMvc.perform(get("/api/todo/initialize")
+                            .param("topic", "Balkon")
+                            .param("count", "2"))
+                    .andExpect(status().isAccepted())
+                    .andReturn();
+            jobIds.add(JsonPath.read(result.getResponse().getContentAsString(), "$.id"));
+        }
+
+        //THEN
+        assertEquals(1, jobIds.stream().distinct().count());
+        awaitGenerationJob(jobIds.get(0))
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.created").value(2));
+        assertEquals(1, mockWebServer.getRequestCount() - requestsBefore);
+        assertEquals(2, meterRegistry.counter("todo.generation.coalesced").count());
+        mockMvc.perform(get("/api/todo"))
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void initializeTopics_shouldRecordOpenAiLatencyAndTokenUsage_whenCalled() throws Exception {
+        //GIVEN
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader("Content-Type", "application/json")
+                .setBody("""
+                        {
+                            "id": "chatcmpl-1",
+                            "choices": [
+                                {
+                                    "index": 0,
+                                    "message": {"role": "assistant", "content": "1. Rasen mähen"}
+                                }
+                            ],
+                            "usage": {"prompt_tokens": 20, "completion_tokens": 7, "total_tokens": 27}
+                        }
+                        """));
+
+        //WHEN
+        MvcResult result = mockMvc.perform(get("/api/todo/initialize")
+                        .param("count", "1")
+                        .param("bypassCache", "true"))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        awaitGenerationJob(JsonPath.read(result.getResponse().getContentAsString(), "$.id"))
+                .andExpect(jsonPath("$.status").value("DONE"));
+
+        //THEN
+        assertEquals(1, meterRegistry.get("openai.requests").tag("outcome", "success").timer().count());
+        assertEquals(20, meterRegistry.get("openai.tokens").tag("type", "prompt").counter().count());
+        assertEquals(7, meterRegistry.get("openai.tokens").tag("type", "completion").counter().count());
+    }
+
+    @Test
+    void initializeTopics_shouldReturnStatus400_whenCalledWithInvalidCount() throws Exception {
+        mockMvc.perform(get("/api/todo/initialize").param("count", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getGenerationJob_shouldReturnStatus404_whenGivenUnknownJobId() throws Exception {
+        mockMvc.perform(get("/api/todo/initialize/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    private ResultActions awaitGenerationJob(String jobId) throws Exception {
+        for (int i = 0; i < 50; i++) {
+            MvcResult job = mockMvc.perform(get("/api/todo/initialize/" + jobId)).andReturn();
+            String status = JsonPath.read(job.getResponse().getContentAsString(), "$.status");
+            if (status.equals("DONE") || status.equals("FAILED")) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        return mockMvc.perform(get("/api/todo/initialize/" + jobId));
+    }
+
+    private String awaitEvents(MvcResult events, int count) throws Exception {
+        String stream = "";
+        for (int i = 0; i < 50; i++) {
+            stream = events.getResponse().getContentAsString();
+            if (stream.split("event:", -1).length > count) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        return stream;
+    }
 }
@@ -0,0 +1,74 @@
+package de.neuefische.todobackend.todo;
+
+import de.neuefische.todobackend.service.TodoListParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TodoListParserTest {
+
+    @Test
+    void parse_shouldReturnDescriptionsWithoutNumbers_whenCalledWithNumberedList() {
+        //GIVEN
+        String answer = "1. Staubsaugen\n\n2. Fenster putzen\n3. Wäsche waschen";
+
+        //WHEN
+        List<String> actual = TodoListParser.parse(answer, 10);
+
+        //THEN
+        assertEquals(List.of("Staubsaugen", "Fenster putzen", "Wäsche waschen"), actual);
+    }
+
+    @Test
+    void parse_shouldStopAtMaxCount_whenAnswerContainsMoreLines() {
+        //GIVEN
+        String answer = "1. Staubsaugen\n2. Fenster putzen\n3. Wäsche waschen";
+
+        //WHEN
+        List<String> actual = TodoListParser.parse(answer, 2);
+
+        //THEN
+        assertEquals(List.of("Staubsaugen", "Fenster putzen"), actual);
+    }
+
+    @Test
+    void parse_shouldStripAnyNumberingAndSkipHeadings_whenAnswerUsesDifferentFormats() {
+        //GIVEN
+        String answer = """
+                Hier ist deine Liste:
+                1) Staubsaugen
+                2.Fenster putzen
+                3 - Wäsche waschen
+                **4.** **Müll rausbringen**
+                - Blumen gießen
+                10: Keller aufräumen
+                3D-Drucker reinigen
+                """;
+
+        //WHEN
+        List<String> actual = TodoListParser.parse(answer, 10);
+
+        //THEN
+        assertEquals(List.of("Staubsaugen", "Fenster putzen", "Wäsche waschen", "Müll rausbringen",
+                "Blumen gießen", "Keller aufräumen", "3D-Drucker reinigen"), actual);
+    }
+
+    @Test
+    void incremental_shouldEmitEachLineAsSoonAsItIsComplete_whenAnswerArrivesInChunks() {
+        //GIVEN
+        List<String> actual = new ArrayList<>();
+        TodoListParser.Incremental parser = TodoListParser.incremental(10, actual::add);
+
+        //WHEN & THEN
+        parser.accept("1. Staub");
+        assertEquals(List.of(), actual);
+        parser.accept("saugen\n2. Fen");
+        assertEquals(List.of("Staubsaugen"), actual);
+        parser.accept("ster putzen");
+        parser.finish();
+        assertEquals(List.of("Staubsaugen", "Fenster putzen"), actual);
+    }
+}
@@ -1,5 +1,10 @@
 package de.neuefische.todobackend.todo;
 
+import de.neuefische.todobackend.dto.BulkItemResult;
+import de.neuefische.todobackend.dto.BulkOperation;
+import de.neuefische.todobackend.dto.BulkOperationType;
+import de.neuefische.todobackend.dto.TodoEvent;
+import de.neuefische.todobackend.dto.TodoPage;
 import de.neuefische.todobackend.dto.TodoWOId;
 import de.neuefische.todobackend.model.Todo;
 import de.neuefische.todobackend.service.IdService;
@@ -7,10 +12,13 @@ import de.neuefische.todobackend.repository.TodoRepository;
 import de.neuefische.todobackend.service.TodoService;
 import de.neuefische.todobackend.model.TodoStatus;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -19,7 +27,8 @@ class TodoServiceTest {
 
     TodoRepository mockrepo = mock(TodoRepository.class);
     IdService mockIdService = mock(IdService.class);
-    TodoService todoService = new TodoService(mockrepo, mockIdService);
+    ApplicationEventPublisher mockEventPublisher = mock(ApplicationEventPublisher.class);
+    TodoService todoService = new TodoService(mockrepo, mockIdService, mockEventPublisher);
 
     @Test
     void findAllTodos_shouldReturn_t1_t2_t2_whenCalled() {
@@ -39,6 +48,74 @@ class TodoServiceTest {
         assertEquals(todos, actual);
     }
 
+    @Test
+    void findTodosAfter_shouldReturnPageWithNextCursor_whenMoreTodosExist() {
+        //GIVEN
+        Todo t1 = new Todo("1", "d1", TodoStatus.OPEN);
+        Todo t2 = new Todo("2", "d2", TodoStatus.OPEN);
+        Todo t3 = new Todo("3", "d3", TodoStatus.OPEN);
+
+        when(mockrepo.findAllByOrderByIdAsc(Limit.of(3))).thenReturn(List.of(t1, t2, t3));
+
+        //WHEN
+        TodoPage actual = todoService.findTodosAfter(null, null, 2);
+
+        //THEN
+        verify(mockrepo).findAllByOrderByIdAsc(Limit.of(3));
+        assertEquals(new TodoPage(List.of(t1, t2), "2"), actual);
+    }
+
+    @Test
+    void findTodosAfter_shouldReturnLastPageWithoutCursor_whenCalledWithCursor() {
+        //GIVEN
+        Todo t3 = new Todo("3", "d3", TodoStatus.OPEN);
+
+        when(mockrepo.findByIdGreaterThanOrderByIdAsc("2", Limit.of(3))).thenReturn(List.of(t3));
+
+        //WHEN
+        TodoPage actual = todoService.findTodosAfter(null, "2", 2);
+
+        //THEN
+        verify(mockrepo).findByIdGreaterThanOrderByIdAsc("2", Limit.of(3));
+        assertEquals(new TodoPage(List.of(t3), null), actual);
+    }
+
+    @Test
+    void findTodosAfter_shouldQueryByStatus_whenCalledWithStatus() {
+        //GIVEN
+        Todo t2 = new Todo("2", "test-description", TodoStatus.DONE);
+        Todo t3 = new Todo("3", "test-description", TodoStatus.DONE);
+        when(mockrepo.findByStatusAndIdGreaterThanOrderByIdAsc(TodoStatus.DONE, "1", Limit.of(3))).thenReturn(List.of(t2, t3));
+
+        //WHEN
+        TodoPage actual = todoService.findTodosAfter(TodoStatus.DONE, "1", 2);
+
+        //THEN
+        verify(mockrepo).findByStatusAndIdGreaterThanOrderByIdAsc(TodoStatus.DONE, "1", Limit.of(3));
+        assertEquals(new TodoPage(List.of(t2, t3), null), actual);
+    }
+
+    @Test
+    void searchTodos_shouldReturnPageWithNextOffset_whenMoreResultsExist() {
+        //GIVEN
+        Todo t1 = new Todo("1", "Fenster putzen", TodoStatus.OPEN);
+        Todo t2 = new Todo("2", "Fenster streichen", TodoStatus.OPEN);
+        Todo t3 = new Todo("3", "Fensterbank", TodoStatus.OPEN);
+        when(mockrepo.searchTodos("fenster", TodoStatus.OPEN, 4, 3)).thenReturn(List.of(t1, t2, t3));
+
+        //WHEN
+        TodoPage actual = todoService.searchTodos("fenster", TodoStatus.OPEN, "4", 2);
+
+        //THEN
+        verify(mockrepo).searchTodos("fenster", TodoStatus.OPEN, 4, 3);
+        assertEquals(new TodoPage(List.of(t1, t2), "6"), actual);
+    }
+
+    @Test
+    void searchTodos_shouldThrowException_whenCalledWithInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> todoService.searchTodos("fenster", null, "abc", 2));
+    }
+
     @Test
     void addTodo_shouldSaveTodoWithIdIntoDatabase_whenCalledWithDto() {
         //GIVEN
@@ -46,14 +123,15 @@ class TodoServiceTest {
         Todo todoToSave = new Todo("Test-Id", "Test-Description", TodoStatus.OPEN);
 
         when(mockIdService.randomId()).thenReturn("Test-Id");
-        when(mockrepo.save(todoToSave)).thenReturn(todoToSave);
+        when(mockrepo.insertTodo(todoToSave)).thenReturn(todoToSave);
 
         //WHEN
         Todo actual = todoService.addTodo(newTodo);
 
         //THEN
         verify(mockIdService).randomId();
-        verify(mockrepo).save(todoToSave);
+        verify(mockrepo).insertTodo(todoToSave);
+        verify(mockEventPublisher).publishEvent(TodoEvent.created(todoToSave));
         assertEquals(todoToSave, actual);
     }
 
@@ -65,13 +143,31 @@ class TodoServiceTest {
 
         Todo updatedTodo = new Todo("123", "test-description", TodoStatus.IN_PROGRESS);
 
-        when(mockrepo.save(updatedTodo)).thenReturn(updatedTodo);
+        when(mockrepo.upsertTodo(updatedTodo)).thenReturn(updatedTodo);
 
         //WHEN
-        Todo actual = todoService.updateTodo(todoToUpdate, id);
+        Todo actual = todoService.updateTodo(todoToUpdate, id, null);
 
         //THEN
-        verify(mockrepo).save(updatedTodo);
+        verify(mockrepo).upsertTodo(updatedTodo);
+        assertEquals(updatedTodo, actual);
+    }
+
+    @Test
+    void updateTodo_shouldCheckVersion_whenCalledWithExpectedVersion() {
+        //GIVEN
+        TodoWOId todoToUpdate = new TodoWOId("test-description", TodoStatus.DONE);
+        Todo todo = new Todo("123", "test-description", TodoStatus.DONE);
+        Todo updatedTodo = new Todo("123", "test-description", TodoStatus.DONE, 4L);
+
+        when(mockrepo.updateTodoIfVersion(todo, List.of(3L))).thenReturn(updatedTodo);
+
+        //WHEN
+        Todo actual = todoService.updateTodo(todoToUpdate, "123", List.of(3L));
+
+        //THEN
+        verify(mockrepo).updateTodoIfVersion(todo, List.of(3L));
+        verify(mockrepo, never()).upsertTodo(todo);
         assertEquals(updatedTodo, actual);
     }
 
@@ -109,12 +205,47 @@ class TodoServiceTest {
     void deleteTodo_shouldCallDeleteMethodFromRepo_WhenCalledWithValidId() {
         //GIVEN
         String id = "1";
-        doNothing().when(mockrepo).deleteById(id);
+        when(mockrepo.removeTodo(id)).thenReturn(true);
 
         //WHEN
         todoService.deleteTodo(id);
 
         //THEN
-        verify(mockrepo).deleteById(id);
+        verify(mockrepo).removeTodo(id);
+        verify(mockEventPublisher).publishEvent(TodoEvent.deleted(id));
+    }
+
+    @Test
+    void applyBulk_shouldAssignIdsToCreatesAndPassAllOperationsToRepo_whenCalled() {
+        //GIVEN
+        TodoWOId todo = new TodoWOId("d1", TodoStatus.OPEN);
+        BulkOperation create = new BulkOperation(BulkOperationType.CREATE, null, todo);
+        BulkOperation update = new BulkOperation(BulkOperationType.UPDATE, "2", todo);
+        BulkOperation delete = new BulkOperation(BulkOperationType.DELETE, "3", null);
+
+        List<BulkOperation> expectedOperations = List.of(create.withId("Test-Id"), update, delete);
+        List<BulkItemResult> results = List.of(
+                BulkItemResult.ok(0, create.withId("Test-Id")),
+                BulkItemResult.ok(1, update),
+                BulkItemResult.ok(2, delete));
+
+        Todo createdTodo = new Todo("Test-Id", "d1", TodoStatus.OPEN, 0L);
+        Todo updatedTodo = new Todo("2", "d1", TodoStatus.OPEN, 4L);
+
+        when(mockIdService.randomId()).thenReturn("Test-Id");
+        when(mockrepo.bulkWrite(expectedOperations)).thenReturn(results);
+        when(mockrepo.findAllById(Set.of("Test-Id", "2"))).thenReturn(List.of(createdTodo, updatedTodo));
+
+        //WHEN
+        List<BulkItemResult> actual = todoService.applyBulk(List.of(create, update, delete));
+
+        //THEN
+        verify(mockIdService, times(1)).randomId();
+        verify(mockrepo).bulkWrite(expectedOperations);
+        assertEquals(results, actual);
+        //Events mit dem gespeicherten Stand, also auch mit der neuen Version
+        verify(mockEventPublisher).publishEvent(TodoEvent.created(createdTodo));
+        verify(mockEventPublisher).publishEvent(TodoEvent.updated(updatedTodo));
+        verify(mockEventPublisher).publishEvent(TodoEvent.deleted("3"));
     }
 }